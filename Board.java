@@ -25,6 +25,48 @@ public class Board {
     private int halfmoveClock = 0;
     private int fullmoveNumber = 1;
 
+    // Start from the initial position
+    public Board() {
+    }
+
+    // Start from a position in FEN notation; missing trailing fields take their usual defaults
+    public Board(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char c : rows[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    for (int i = 0; i < c - '0' && col < 8; i++) {
+                        boardState[row][col++] = ' ';
+                    }
+                } else if (col < 8) {
+                    boardState[row][col++] = c;
+                }
+            }
+            if (col != 8) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+
+        whiteToMove = fields.length < 2 || fields[1].equals("w");
+        String castling = fields.length > 2 ? fields[2] : "-";
+        whiteCastleKing = castling.indexOf('K') >= 0;
+        whiteCastleQueen = castling.indexOf('Q') >= 0;
+        blackCastleKing = castling.indexOf('k') >= 0;
+        blackCastleQueen = castling.indexOf('q') >= 0;
+        enPassantTarget = fields.length > 3 ? fields[3] : "-";
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+            fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen, e);
+        }
+    }
+
     // Get a copy of the current board state
     public char[][] getBoardState() {
         char[][] copy = new char[8][8];
@@ -34,6 +76,11 @@ public class Board {
         return copy;
     }
 
+    // Whether it is White's turn to move
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
     // Make a move given in UCI format (e.g., "e2e4" or "e7e8q"). Returns true if the move was applied.
     public boolean makeMove(String uciMove) {
         if (uciMove == null || uciMove.length() < 4) {
@@ -58,6 +105,12 @@ public class Board {
         // Remove the moving piece from its original square
         boardState[fromRow][fromCol] = ' ';
 
+        // En passant: a pawn moving diagonally onto an empty square captures the pawn beside it
+        if ((piece == 'P' || piece == 'p') && fromCol != toCol && capturedPiece == ' ') {
+            capturedPiece = boardState[fromRow][toCol];
+            boardState[fromRow][toCol] = ' ';
+        }
+
         // Handle castling if a king moves two files
         if ((piece == 'K' || piece == 'k') && Math.abs(fromCol - toCol) == 2) {
             if (toCol == 6) {
@@ -0,0 +1,66 @@
+package com.example.chesspedagogue;
+
+import android.graphics.Bitmap;
+
+/**
+ * Small direct-mapped ring of pre-rendered board frames, keyed by ply.
+ * Ply p always lives in slot p % capacity, so any window of {@code capacity}
+ * consecutive plies fits without evictions and bitmaps are reused, never reallocated
+ * while the board size stays the same.
+ */
+public class BoardFrameRing {
+    private final Bitmap[] frames;
+    private final int[] plies;
+
+    public BoardFrameRing(int capacity) {
+        frames = new Bitmap[capacity];
+        plies = new int[capacity];
+        invalidateAll();
+    }
+
+    /**
+     * Get the rendered frame for a ply, or null if it has not been rendered.
+     */
+    public Bitmap get(int ply) {
+        int slot = ply % frames.length;
+        return plies[slot] == ply ? frames[slot] : null;
+    }
+
+    /**
+     * Claim the slot for a ply and return a bitmap of the given size to render into.
+     * The slot is only marked as holding that ply once {@link #markRendered} is called.
+     */
+    public Bitmap obtain(int ply, int size) {
+        int slot = ply % frames.length;
+        Bitmap bmp = frames[slot];
+        if (bmp == null || bmp.getWidth() != size) {
+            if (bmp != null) bmp.recycle();
+            // RGB_565 halves the memory of each frame; the board is fully opaque
+            bmp = Bitmap.createBitmap(size, size, Bitmap.Config.RGB_565);
+            frames[slot] = bmp;
+        }
+        plies[slot] = -1;
+        return bmp;
+    }
+
+    public void markRendered(int ply) {
+        plies[ply % frames.length] = ply;
+    }
+
+    /**
+     * Forget every rendered frame (e.g. after the board was flipped or resized).
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < plies.length; i++) plies[i] = -1;
+    }
+
+    public void release() {
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] != null) {
+                frames[i].recycle();
+                frames[i] = null;
+            }
+            plies[i] = -1;
+        }
+    }
+}
@@ -58,6 +58,12 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         notifyItemInserted(messages.size() - 1);
     }
 
+    // Replace the text of an existing message (used while a reply streams in)
+    public void updateMessage(int position, String text) {
+        messages.get(position).setMessage(text);
+        notifyItemChanged(position);
+    }
+
     static class UserMessageViewHolder extends RecyclerView.ViewHolder {
         TextView messageText;
 
@@ -19,4 +19,7 @@ public class ChatMessage {
     public int getType() { return type; }
     public String getMessage() { return message; }
     public long getTimestamp() { return timestamp; }
+
+    // Setter for text that grows while streaming
+    public void setMessage(String message) { this.message = message; }
 }
\ No newline at end of file
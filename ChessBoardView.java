@@ -62,6 +62,12 @@ public class ChessBoardView extends View {
     }
     private final List<MovingPiece> movingPieces = new ArrayList<>();
 
+    /* ───── piece drawables, inflated once per piece type ───── */
+    private final Drawable[] pieceDrawables = new Drawable[128];
+
+    /* ───── pre-rendered frame shown while scrubbing ───── */
+    private Bitmap frame;
+
     /* ───── tap listener ───── */
     public interface OnSquareTapListener { void onSquareTapped(int row,int col); }
     private OnSquareTapListener squareTapListener;
@@ -103,6 +109,8 @@ public class ChessBoardView extends View {
         squareSize = getWidth()/8;
         int pad = squareSize/16;
 
+        if(frame!=null){ canvas.drawBitmap(frame,0,0,null); return; }
+
         /* 1) squares */
         for(int r=0;r<8;r++) for(int c=0;c<8;c++){
             int br = flipped?7-r:r, bc = flipped?7-c:c;
@@ -130,7 +138,7 @@ public class ChessBoardView extends View {
             char pc=boardState[r][c];
             if(pc==' ') continue;
             int vr=flipped?7-r:r, vc=flipped?7-c:c;
-            Drawable d=ContextCompat.getDrawable(getContext(),getDrawableForPiece(pc));
+            Drawable d=getCachedDrawable(pc);
             if(d==null) continue;
             d.setBounds(vc*squareSize+pad,vr*squareSize+pad,
                     vc*squareSize+squareSize-pad,vr*squareSize+squareSize-pad);
@@ -158,65 +166,63 @@ public class ChessBoardView extends View {
     public char getPieceAt(int r,int c){return boardState[r][c];}
 
     public void updateBoardFromFen(String fen) {
-        if (fen == null || fen.isEmpty()) return;
+        PositionSnapshot snapshot = PositionSnapshot.fromFen(fen);
+        if (snapshot != null) applySnapshot(snapshot);
+    }
 
-        // Create a temporary copy of the current board state
-        char[][] newBoardState = new char[8][8];
-        for (int i = 0; i < 8; i++) {
-            System.arraycopy(boardState[i], 0, newBoardState[i], 0, 8);
+    /**
+     * Apply a position snapshot (usually built off the UI thread) and return the
+     * squares that actually changed, as 0..63 indices (row * 8 + col).
+     * Nothing is copied or redrawn when the snapshot matches the current board.
+     */
+    public int[] applySnapshot(PositionSnapshot snapshot) {
+        int[] changed = snapshot.diff(boardState);
+        if (changed.length == 0) return changed;
+
+        for (int sq : changed) {
+            boardState[sq >> 3][sq & 7] = snapshot.pieceAt(sq);
         }
 
-        // Split off just the square‑placement part
-        String[] parts = fen.split("\\s+");
-        String[] ranks = parts[0].split("/");
-
-        // For each of the 8 ranks...
-        for (int r = 0; r < 8; r++) {
-            int c = 0;
-            for (char ch : ranks[r].toCharArray()) {
-                if (Character.isDigit(ch)) {
-                    // e.g. '3' means three empty squares
-                    int empty = ch - '0';
-                    for (int i = 0; i < empty; i++) {
-                        newBoardState[r][c++] = ' ';
-                    }
-                } else {
-                    // a letter is a piece
-                    newBoardState[r][c++] = ch;
-                }
-            }
-        }
+        // Clear any selection/highlights now that the board has changed
+        selectedRow = selectedCol = -1;
+        highlightSquares.clear();
 
-        // Check if anything actually changed
-        boolean boardChanged = false;
-        for (int r = 0; r < 8 && !boardChanged; r++) {
-            for (int c = 0; c < 8; c++) {
-                if (boardState[r][c] != newBoardState[r][c]) {
-                    boardChanged = true;
-                    break;
-                }
-            }
-        }
+        invalidate();
+        return changed;
+    }
 
-        // Only update if something changed
-        if (boardChanged) {
-            // Update the board state
-            for (int r = 0; r < 8; r++) {
-                System.arraycopy(newBoardState[r], 0, boardState[r], 0, 8);
-            }
 
-            // Clear any selection/highlights now that the board has re‑drawn
-            selectedRow = selectedCol = -1;
-            highlightSquares.clear();
 
-            // Finally, redraw the view
-            invalidate();
-        }
-    }
+    public void setFlipped(boolean f){flipped=f;invalidate();}
+    public boolean isFlipped(){return flipped;}
 
+    /** The pieces currently shown, e.g. for resolving a spoken move. */
+    public PositionSnapshot getSnapshot(boolean whiteToMove){
+        return PositionSnapshot.fromBoardState(boardState, whiteToMove);
+    }
 
+    /** Show a pre-rendered frame instead of drawing the board; null returns to live drawing. */
+    public void showFrame(Bitmap f){
+        if(frame==f) return;
+        frame=f; invalidate();
+    }
 
-    public void setFlipped(boolean f){flipped=f;invalidate();}
+    /** Render squares and pieces of a snapshot (no highlights) into a square bitmap. */
+    public void renderFrame(PositionSnapshot s, Bitmap target){
+        Canvas c=new Canvas(target);
+        int sq=target.getWidth()/8, pad=sq/16;
+        for(int r=0;r<8;r++) for(int col=0;col<8;col++){
+            int br=flipped?7-r:r, bc=flipped?7-col:col;
+            Paint p=((br+bc)&1)==0?lightPaint:darkPaint;
+            c.drawRect(col*sq,r*sq,col*sq+sq,r*sq+sq,p);
+            char pc=s.pieceAt(br,bc);
+            if(pc==' ') continue;
+            Drawable d=getCachedDrawable(pc);
+            if(d==null) continue;
+            d.setBounds(col*sq+pad,r*sq+pad,col*sq+sq-pad,r*sq+sq-pad);
+            d.draw(c);
+        }
+    }
     public void setSelectedSquare(int br,int bc){
         selectedRow=flipped?7-br:br; selectedCol=flipped?7-bc:bc; invalidate();
     }
@@ -275,6 +281,18 @@ public class ChessBoardView extends View {
         legalAnimator.start();
     }
 
+    private Drawable getCachedDrawable(char p){
+        if(p>=pieceDrawables.length) return null;
+        Drawable d=pieceDrawables[p];
+        if(d==null){
+            int res=getDrawableForPiece(p);
+            if(res==0) return null;
+            d=ContextCompat.getDrawable(getContext(),res);
+            pieceDrawables[p]=d;
+        }
+        return d;
+    }
+
     private int getDrawableForPiece(char p){
         switch(p){
             case 'P':return R.drawable.ic_white_pawn;
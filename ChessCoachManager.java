@@ -9,10 +9,11 @@ import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 //import android.widget.Toast;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+
+import okhttp3.Call;
 
 /**
  * Manages the chess coach AI functionality, including API communication,
@@ -24,12 +25,13 @@ public class ChessCoachManager {
     private static ChessCoachManager instance;
     private final Context context;
     private final OpenAIService openAIService;
-    private final ExecutorService executorService;
+    private final CoachRequestScheduler scheduler;
     private final Handler mainHandler;
 
     // Text-to-Speech engine
     private TextToSpeech textToSpeech;
     private boolean ttsReady = false;
+    private volatile boolean speechEnabled = true;
     private SpeechRecognitionManager speechRecognitionManager;
 
     // Callback interface for responses
@@ -37,15 +39,63 @@ public class ChessCoachManager {
         void onResponseReceived(String response);
         void onError(String errorMessage);
         void onSpeechCompleted();
+
+        /**
+         * Called on the main thread with the text received so far while a
+         * response is streaming in. onResponseReceived still follows with the full text.
+         */
+        default void onPartialResponse(String partialResponse) { }
     }
 
+    // Utterance id of the last (or only) chunk of a response; intermediate
+    // sentence chunks use a different id so completion fires only once
+    private static final String UTTERANCE_ID = "ChessCoach";
+    private static final String PARTIAL_UTTERANCE_ID = "ChessCoach-partial";
+
+    // Scheduler slots: a new request replaces the pending one in the same slot,
+    // or joins it if it asks for the same thing (see the keys passed to submit)
+    private static final String SLOT_ADVICE = "advice";
+    private static final String SLOT_CHAT = "chat";
+    private static final String SLOT_PREFETCH = "prefetch";
+    private static final int REQUEST_WORKERS = 2;
+
+    // Short MultiPV search run before advice requests
+    private static final int ENGINE_LINES = 3;
+    private static final int ENGINE_THINK_MS = 300;
+    private volatile StockfishManager engine;
+
+    // Answers from engine output alone if the remote coach fails or is slower than the budget
+    private static final long LOCAL_COACH_BUDGET_MS = 3000;
+    // Time the remote coach gets for advice the local coach can stand in for
+    private static final long ADVICE_DEADLINE_MS = 12000;
+    private final LocalCoach localCoach = new LocalCoach();
+
+    // Speculative advice is only fetched once the player has asked the coach for advice
+    private volatile boolean adviceRequested = false;
+
     private ChessCoachManager(Context context) {
+        this(context, OpenAIService.getInstance());
+        this.openAIService.setCacheDirectory(this.context.getCacheDir());
+
+        initTextToSpeech();
+    }
+
+    private ChessCoachManager(Context context, OpenAIService openAIService) {
         this.context = context.getApplicationContext();
-        this.openAIService = OpenAIService.getInstance();
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.openAIService = openAIService;
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.scheduler = new CoachRequestScheduler(REQUEST_WORKERS, mainHandler::post);
+    }
 
-        initTextToSpeech();
+    /**
+     * A coach of its own on the given service, with no speech and no engine, so it
+     * leaves the app's coach alone (e.g. for {@link CoachBenchmark}). Call
+     * {@link #shutdown()} when done with it.
+     */
+    static ChessCoachManager createDetached(Context context, OpenAIService openAIService) {
+        ChessCoachManager coach = new ChessCoachManager(context, openAIService);
+        coach.speechEnabled = false;
+        return coach;
     }
 
     /**
@@ -58,6 +108,33 @@ public class ChessCoachManager {
         return instance;
     }
 
+    /**
+     * The board position changed; advice requested for earlier positions is
+     * cancelled and will not be delivered or spoken.
+     */
+    public void onPositionChanged() {
+        scheduler.advanceGeneration();
+    }
+
+    /**
+     * Engine used for a short search before advice requests. It is expected to be
+     * set to the position being discussed, as the game's engine is. May be null.
+     */
+    public void setEngine(StockfishManager engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Turn spoken replies on or off (text is still delivered), e.g. for benchmarks
+     */
+    public void setSpeechEnabled(boolean enabled) {
+        this.speechEnabled = enabled;
+    }
+
+    private boolean canSpeak() {
+        return ttsReady && speechEnabled;
+    }
+
     /**
      * Set the OpenAI API key
      */
@@ -102,6 +179,13 @@ public class ChessCoachManager {
         this.voiceController = controller;
     }
 
+    /**
+     * Recognizer used to let the player interrupt the coach by talking; may be null
+     */
+    public void setSpeechRecognitionManager(SpeechRecognitionManager manager) {
+        this.speechRecognitionManager = manager;
+    }
+
     // Add this new method
     private UtteranceProgressListener createUtteranceProgressListener() {
         return new UtteranceProgressListener() {
@@ -113,9 +197,15 @@ public class ChessCoachManager {
             @Override
             public void onDone(String utteranceId) {
                 Log.d(TAG, "TTS finished speaking utterance: " + utteranceId);
+                if (!UTTERANCE_ID.equals(utteranceId)) return;
 
                 // Important: Always check on main thread to avoid issues
                 mainHandler.post(() -> {
+                    speakingRequest = null;
+                    // Done talking, so nothing left to interrupt
+                    if (speechRecognitionManager != null) {
+                        speechRecognitionManager.stopBackgroundListening();
+                    }
                     if (currentCallback != null) {
                         Log.d(TAG, "Notifying callback of speech completion: " +
                                 currentCallback.getClass().getSimpleName());
@@ -129,6 +219,7 @@ public class ChessCoachManager {
             @Override
             public void onError(String utteranceId) {
                 Log.e(TAG, "TTS Error with utterance: " + utteranceId);
+                if (!UTTERANCE_ID.equals(utteranceId)) return;
 
                 // Even on error, notify callback to keep conversation flowing
                 mainHandler.post(() -> {
@@ -145,56 +236,50 @@ public class ChessCoachManager {
     // Track the current callback
     private ChessCoachCallback currentCallback;
 
+    // The request whose reply is being spoken; main thread only
+    private StreamingSpeech speakingRequest;
+
     /**
      * Get chess advice based on the current position
      */
     public void getChessAdvice(String fen, String lastMove, String playerColor, ChessCoachCallback callback) {
         this.currentCallback = callback;
-
-        executorService.execute(() -> {
-            try {
-                String response = openAIService.generateChessAdvice(fen, lastMove, playerColor);
-                mainHandler.post(() -> {
-                    callback.onResponseReceived(response);
-                    speakResponse(response);
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error getting chess advice", e);
-                mainHandler.post(() -> callback.onError("Failed to get advice: " + e.getMessage()));
-            }
-        });
+        this.adviceRequested = true;
+
+        StreamingSpeech speech = new StreamingSpeech(callback);
+        scheduler.submit(SLOT_ADVICE, "advice:" + fen + ":" + lastMove + ":" + playerColor,
+                CoachRequestScheduler.Priority.USER, scheduler.currentGeneration(),
+                ticket -> {
+                    String localAdvice = analyzeGameContext(
+                            new CoachPromptBuilder.PositionContext(fen, playerColor), null);
+                    return raceLocalCoach(ticket, speech, localAdvice, deadlineMs ->
+                            openAIService.generateChessAdvice(fen, lastMove, playerColor, speech, deadlineMs));
+                },
+                new SpeechResultListener(callback, speech, "Failed to get advice: "));
     }
 
     // Add to ChessCoachManager.java
     public void analyzeAndRecordGameState(String fen, List<String> moveHistory) {
-        // A simple example of recording concepts/mistakes based on position
-        if (fen.contains("1k6") && fen.contains("7K")) {
-            // Detect king and king endgames
+        PositionSnapshot snapshot = PositionSnapshot.fromFen(fen);
+        if (snapshot == null) return;
+        PositionFeatures features = PositionFeatures.extract(snapshot);
+        boolean whiteToMove = snapshot.isWhiteToMove();
+
+        // Only the kings are left
+        if (features.getMaterial(true) + features.getMaterial(false) == 0) {
             openAIService.recordConceptExplained("king and king endgames");
         }
 
         // Look for typical beginner mistakes in the position
-        if (isKingInDanger(fen, moveHistory)) {
+        if (features.isInCheck(whiteToMove)) {
             openAIService.recordPlayerMistake("king safety");
         }
 
-        if (hasUndevelopedPieces(fen) && moveHistory.size() > 10) {
+        if (features.getUndevelopedMinors(whiteToMove) > 0 && moveHistory.size() > 10) {
             openAIService.recordPlayerMistake("incomplete development");
         }
     }
 
-    // Example helper methods
-    private boolean isKingInDanger(String fen, List<String> moveHistory) {
-        // Simplified check - in a real implementation, you'd use Stockfish analysis
-        return fen.contains("+ ") || fen.contains("#");
-    }
-
-    private boolean hasUndevelopedPieces(String fen) {
-        // Check if knights or bishops remain on their home squares after 10+ moves
-        return fen.contains("N1") || fen.contains("B1") ||
-                fen.contains("n8") || fen.contains("b8");
-    }
-
     /**
      * Get enhanced chess advice with full game context.
      * This method analyzes the current position, tracks concepts explained,
@@ -208,113 +293,201 @@ public class ChessCoachManager {
     public void getEnhancedChessAdvice(String fen, List<String> moveHistory,
                                        String playerColor, ChessCoachCallback callback) {
         this.currentCallback = callback;
+        this.adviceRequested = true;
+
+        StreamingSpeech speech = new StreamingSpeech(callback);
+        scheduler.submit(SLOT_ADVICE, "enhanced:" + fen + ":" + playerColor,
+                CoachRequestScheduler.Priority.USER, scheduler.currentGeneration(),
+                ticket -> {
+                    Log.d(TAG, "Generating enhanced chess advice for position: " + fen);
+
+                    // 1. First, note the player's mistakes and analyze the position
+                    // (the analysis is already done if the advice was prefetched)
+                    recordPlayerMistakes(fen, moveHistory, playerColor);
+                    CoachPromptBuilder.PositionContext position =
+                            new CoachPromptBuilder.PositionContext(fen, playerColor);
+                    String localAdvice = null;
+                    if (!openAIService.hasEnhancedChessAdvice(fen, playerColor)) {
+                        localAdvice = analyzeGameContext(position, moveHistory);
+                    }
 
-        executorService.execute(() -> {
-            try {
-                Log.d(TAG, "Generating enhanced chess advice for position: " + fen);
+                    // 2. Generate the advice with all the enhanced context, streaming it as it arrives.
+                    // The local coach answers instead if nothing has arrived within the budget.
+                    // Concepts it explained are recorded by the service as the reply arrives.
+                    return raceLocalCoach(ticket, speech, localAdvice, deadlineMs ->
+                            openAIService.generateEnhancedChessAdvice(position, moveHistory, speech, deadlineMs));
+                },
+                // 3. Deliver the full response on the main thread (unless superseded)
+                new SpeechResultListener(callback, speech, "Failed to get advice: "));
+    }
 
-                // 1. First, analyze the position and update our context tracking
-                analyzeGameContext(fen, moveHistory, playerColor);
+    /**
+     * A remote coach request that gives up after {@code deadlineMs}
+     */
+    private interface RemoteRequest {
+        String send(long deadlineMs);
+    }
 
-                // 2. Generate the advice with all the enhanced context
-                String response = openAIService.generateEnhancedChessAdvice(fen, moveHistory, playerColor);
+    /**
+     * Run a remote request with the local coach's answer standing by. The local
+     * answer is shown if nothing has streamed within {@link #LOCAL_COACH_BUDGET_MS},
+     * and returned instead of the failure message if the remote coach fails.
+     * Without a local answer the request just runs with the interactive deadline.
+     */
+    private String raceLocalCoach(CoachRequestScheduler.Ticket ticket, StreamingSpeech speech,
+                                  String localAdvice, RemoteRequest request) {
+        speech.bind(ticket);
+        if (localAdvice == null) {
+            return request.send(OpenAIService.INTERACTIVE_DEADLINE_MS);
+        }
+        speech.startFallbackTimer(localAdvice, LOCAL_COACH_BUDGET_MS);
+        String response = request.send(ADVICE_DEADLINE_MS);
+        if (speech.hasFailed()) {
+            Log.d(TAG, "Remote coach unavailable, answering with the local coach");
+            return localAdvice;
+        }
+        return response;
+    }
 
-                // 3. Analyze the response to extract concepts that were explained
-                identifyExplainedConcepts(response);
+    /**
+     * Speculatively fetch enhanced advice for a position the player has not asked
+     * about yet (e.g. right after the engine moved), at background priority.
+     * The reply only goes into the response cache, so a later
+     * {@link #getEnhancedChessAdvice} for the position answers at once. Cancelled
+     * when the position changes or a newer prefetch is started.
+     */
+    public void prefetchAdvice(String fen, List<String> moveHistory, String playerColor) {
+        if (!adviceRequested || fen == null) return;
+
+        List<String> moves = moveHistory != null ? new ArrayList<>(moveHistory) : null;
+        scheduler.submit(SLOT_PREFETCH, CoachRequestScheduler.Priority.BACKGROUND, scheduler.currentGeneration(),
+                ticket -> {
+                    if (openAIService.hasEnhancedChessAdvice(fen, playerColor)) return null;
+
+                    CoachPromptBuilder.PositionContext position =
+                            new CoachPromptBuilder.PositionContext(fen, playerColor);
+                    // Only the pure analysis: the player hasn't asked about this position,
+                    // so no mistakes are recorded for it
+                    analyzeGameContext(position, moves);
+                    if (ticket.isCancelled()) return null;
+                    openAIService.prefetchEnhancedChessAdvice(position, moves,
+                            new OpenAIService.StreamListener() {
+                                @Override
+                                public void onPartialResponse(String textSoFar) { }
+
+                                @Override
+                                public void onCallStarted(Call call) {
+                                    ticket.attachCall(call);
+                                }
+
+                                @Override
+                                public boolean isCancelled() {
+                                    return ticket.isCancelled();
+                                }
+                            }, OpenAIService.SPECULATIVE_DEADLINE_MS);
+                    return null;
+                },
+                new CoachRequestScheduler.ResultListener() {
+                    @Override
+                    public void onResult(String result) { }
 
-                // 4. Deliver the response on the main thread
-                mainHandler.post(() -> {
-                    callback.onResponseReceived(response);
-                    speakResponse(response);
+                    @Override
+                    public void onError(Exception e) {
+                        Log.w(TAG, "Advice prefetch failed", e);
+                    }
                 });
-            } catch (Exception e) {
-                Log.e(TAG, "Error getting enhanced chess advice", e);
-                mainHandler.post(() -> callback.onError("Failed to get advice: " + e.getMessage()));
-            }
-        });
     }
 
     /**
-     * Analyze the game context to enhance future responses
+     * Game phase guessed from the number of moves played.
      */
-    private void analyzeGameContext(String fen, List<String> moveHistory, String playerColor) {
-        try {
-            // Determine game phase
-            String gamePhase = "opening";
-            if (moveHistory != null) {
-                int moveCount = moveHistory.size();
-                if (moveCount < 10) {
-                    gamePhase = "opening";
-                } else if (moveCount < 30) {
-                    gamePhase = "middlegame";
-                } else {
-                    gamePhase = "endgame";
-                }
-            }
-
-            // Update context with current game state
-            openAIService.updateContext("currentPosition", fen);
-            openAIService.updateContext("playerColor", playerColor);
-            openAIService.updateContext("gamePhase", gamePhase);
-
-            // Perform simple position analysis to detect common patterns
-            // These are very basic checks - in a full implementation you'd use
-            // Stockfish analysis for more sophisticated detection
+    private static String gamePhase(List<String> moveHistory) {
+        if (moveHistory == null) return "opening";
+        int moveCount = moveHistory.size();
+        if (moveCount < 10) {
+            return "opening";
+        } else if (moveCount < 30) {
+            return "middlegame";
+        }
+        return "endgame";
+    }
 
-            // Check for undeveloped pieces in opening/middlegame
-            if (gamePhase.equals("opening") || gamePhase.equals("middlegame")) {
-                if (fen.contains("N1") || fen.contains("B1") ||
-                        fen.contains("n8") || fen.contains("b8")) {
-                    openAIService.recordPlayerMistake("undeveloped pieces");
-                }
+    /**
+     * Record the player's mistakes in this position with the service, so later
+     * answers can refer back to them. Only for positions the player asked about;
+     * speculative requests must not call this.
+     */
+    private void recordPlayerMistakes(String fen, List<String> moveHistory, String playerColor) {
+        try {
+            PositionSnapshot snapshot = PositionSnapshot.fromFen(fen);
+            if (snapshot == null) return;
+            boolean playerWhite = !"black".equalsIgnoreCase(playerColor);
+            PositionFeatures features = PositionFeatures.extract(snapshot);
+
+            // Minor pieces still at home after the first few moves
+            int plies = moveHistory != null ? moveHistory.size() : 0;
+            if (plies >= 16 && features.getUndevelopedMinors(playerWhite) > 0) {
+                openAIService.recordPlayerMistake("undeveloped pieces");
             }
 
             // Check for king safety issues
-            if (fen.contains("+") || isKingExposed(fen, playerColor)) {
+            if (features.isInCheck(playerWhite)
+                    || (!gamePhase(moveHistory).equals("endgame") && features.getKingShelter(playerWhite) < 2)) {
                 openAIService.recordPlayerMistake("king safety");
             }
 
             // Check for pawn structure issues
-            if (countIsolatedPawns(fen, playerColor) > 2) {
+            if (features.getIsolatedPawns(playerWhite) > 2) {
                 openAIService.recordPlayerMistake("isolated pawns");
             }
-
-            Log.d(TAG, "Game context analysis complete for phase: " + gamePhase);
         } catch (Exception e) {
-            Log.e(TAG, "Error in analyzeGameContext", e);
-            // Continue execution despite analysis errors
+            Log.e(TAG, "Error recording player mistakes", e);
         }
     }
 
     /**
-     * Identify chess concepts that were explained in the response
+     * Analyze the game context for one request. Facts about this position go into
+     * the request's own context only; nothing is recorded with the service, so this
+     * is safe for speculative requests too.
+     *
+     * @return the local coach's explanation of the position, or null if it could not be built
      */
-    private void identifyExplainedConcepts(String response) {
-        String lowerResponse = response.toLowerCase();
-
-        // Check for common chess concepts in the response
-        if (lowerResponse.contains("pin") && lowerResponse.contains("cannot move")) {
-            openAIService.recordConceptExplained("pins");
-        }
-
-        if (lowerResponse.contains("fork") &&
-                (lowerResponse.contains("attack two") || lowerResponse.contains("attacking multiple"))) {
-            openAIService.recordConceptExplained("forks");
-        }
+    private String analyzeGameContext(CoachPromptBuilder.PositionContext position, List<String> moveHistory) {
+        String fen = position.fen;
+        String playerColor = position.playerColor;
+        String localAdvice = null;
+        try {
+            String gamePhase = gamePhase(moveHistory);
+            position.put("gamePhase", gamePhase);
+
+            // Board-based facts, so the coach doesn't have to work them out from the FEN
+            PositionSnapshot snapshot = PositionSnapshot.fromFen(fen);
+            PositionFeatures features = null;
+            if (snapshot != null) {
+                features = PositionFeatures.extract(snapshot);
+                position.put("Position facts", features.describe());
+            }
 
-        if (lowerResponse.contains("develop") && lowerResponse.contains("piece")) {
-            openAIService.recordConceptExplained("development");
-        }
+            // Candidate moves from a short engine search of this position, which may
+            // no longer be the game position by the time the request runs
+            StockfishManager engine = this.engine;
+            List<String> lines = new ArrayList<>();
+            if (engine != null) {
+                lines = engine.getTopLines(fen, ENGINE_LINES, ENGINE_THINK_MS);
+                position.put("Engine top lines (score for side to move)",
+                        lines.isEmpty() ? null : String.join("; ", lines));
+            }
 
-        if (lowerResponse.contains("control") && lowerResponse.contains("center")) {
-            openAIService.recordConceptExplained("center control");
-        }
+            if (features != null) {
+                localAdvice = localCoach.explain(snapshot, features, lines, playerColor, gamePhase);
+            }
 
-        if (lowerResponse.contains("castle") || lowerResponse.contains("castling")) {
-            openAIService.recordConceptExplained("castling");
+            Log.d(TAG, "Game context analysis complete for phase: " + gamePhase);
+        } catch (Exception e) {
+            Log.e(TAG, "Error in analyzeGameContext", e);
+            // Continue execution despite analysis errors
         }
-
-        // Add more concept detection as needed
+        return localAdvice;
     }
 
     /**
@@ -336,45 +509,40 @@ public class ChessCoachManager {
     }
 
     /**
-     * Helper method to check if king is exposed
-     * This is a simplified implementation - a real one would use engine analysis
+     * Send a user message to the chess coach
      */
-    private boolean isKingExposed(String fen, String playerColor) {
-        // Simple check - look for lack of pawns near king
-        if (playerColor.equalsIgnoreCase("white")) {
-            return fen.contains("K") && !fen.contains("KP");
-        } else {
-            return fen.contains("k") && !fen.contains("kp");
-        }
-    }
+    public void sendMessage(String message, ChessCoachCallback callback) {
+        this.currentCallback = callback;
 
-    /**
-     * Helper method to count isolated pawns
-     * This is a simplified implementation - a real one would use engine analysis
-     */
-    private int countIsolatedPawns(String fen, String playerColor) {
-        // This would actually require detailed pawn structure analysis
-        // For now, we return a placeholder value
-        return 0;
+        StreamingSpeech speech = new StreamingSpeech(callback);
+        scheduler.submit(SLOT_CHAT, "chat:" + message,
+                CoachRequestScheduler.Priority.USER, CoachRequestScheduler.ANY_POSITION,
+                ticket -> openAIService.sendMessage(message, speech.bind(ticket),
+                        OpenAIService.INTERACTIVE_DEADLINE_MS),
+                new SpeechResultListener(callback, speech, "Failed to send message: "));
     }
+
     /**
-     * Send a user message to the chess coach
+     * Send a question about the given position (an evaluation, a move the player
+     * wants to make). Unlike {@link #sendMessage}, the local coach's reading of the
+     * position stands in if the remote coach is slow or fails, and the request is
+     * dropped once the position changes.
      */
-    public void sendMessage(String message, ChessCoachCallback callback) {
+    public void sendPositionMessage(String message, String fen, List<String> moveHistory,
+                                    String playerColor, ChessCoachCallback callback) {
         this.currentCallback = callback;
 
-        executorService.execute(() -> {
-            try {
-                String response = openAIService.sendMessage(message);
-                mainHandler.post(() -> {
-                    callback.onResponseReceived(response);
-                    speakResponse(response);
-                });
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending message", e);
-                mainHandler.post(() -> callback.onError("Failed to send message: " + e.getMessage()));
-            }
-        });
+        List<String> moves = moveHistory != null ? new ArrayList<>(moveHistory) : null;
+        StreamingSpeech speech = new StreamingSpeech(callback);
+        scheduler.submit(SLOT_CHAT, "chat:" + message,
+                CoachRequestScheduler.Priority.USER, scheduler.currentGeneration(),
+                ticket -> {
+                    String localAdvice = analyzeGameContext(
+                            new CoachPromptBuilder.PositionContext(fen, playerColor), moves);
+                    return raceLocalCoach(ticket, speech, localAdvice, deadlineMs ->
+                            openAIService.sendMessage(message, speech, deadlineMs));
+                },
+                new SpeechResultListener(callback, speech, "Failed to send message: "));
     }
 
     /**
@@ -382,29 +550,236 @@ public class ChessCoachManager {
      */
     // In ChessCoachManager.java, modify the speakResponse method:
     private void speakResponse(String response) {
-        if (ttsReady) {
-            // Start background listening while speaking
+        if (canSpeak()) {
+            startBargeInListening();
+
+            // Speak the response as normal
+            Bundle params = new Bundle();
+            params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, UTTERANCE_ID);
+            textToSpeech.speak(response, TextToSpeech.QUEUE_FLUSH, params, UTTERANCE_ID);
+        }
+    }
+
+    /**
+     * Listen in the background while speaking so the user can interrupt
+     */
+    private void startBargeInListening() {
+        // Start background listening while speaking
+        if (speechRecognitionManager != null) {
+            speechRecognitionManager.startBackgroundListening(new SpeechRecognitionManager.SpeechActivityDetector() {
+                @Override
+                public void onSpeechDetected() {
+                    // User is trying to speak - stop AI speech and start active listening
+                    stopSpeaking();
+
+                    // Use the voiceController instead of directly calling startVoiceRecognition
+                    mainHandler.post(() -> {
+                        if (voiceController != null) {
+                            voiceController.startListening();
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Feeds a streamed response to the UI and to TTS one complete sentence at a
+     * time, so speech starts with the first sentence instead of the whole reply.
+     * One instance per request; all speech calls happen on the main thread.
+     */
+    private class StreamingSpeech implements OpenAIService.StreamListener {
+        private final ChessCoachCallback callback;
+        private volatile CoachRequestScheduler.Ticket ticket;
+        private volatile boolean failed = false;
+        private int spokenUpTo = 0; // characters of the response already queued for speech
+        private String lastPartial = "";
+        private boolean finished = false;
+        private boolean fallbackShown = false; // the local coach answered; the remote reply is dropped
+
+        StreamingSpeech(ChessCoachCallback callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Tie this stream to a scheduled request, so cancelling it stops the call and the speech
+         */
+        StreamingSpeech bind(CoachRequestScheduler.Ticket ticket) {
+            this.ticket = ticket;
+            ticket.setOnCancel(() -> mainHandler.post(this::silence));
+            return this;
+        }
+
+        /**
+         * False if the request joined an identical one and never ran; that one speaks the reply
+         */
+        boolean isBound() {
+            return ticket != null;
+        }
+
+        /**
+         * Stop speaking this request's reply, if it is the one being spoken
+         */
+        private void silence() {
+            if (speakingRequest != this) return;
+            speakingRequest = null;
+            Log.d(TAG, "Request cancelled, stopping its speech");
+            textToSpeech.stop();
             if (speechRecognitionManager != null) {
-                speechRecognitionManager.startBackgroundListening(new SpeechRecognitionManager.SpeechActivityDetector() {
-                    @Override
-                    public void onSpeechDetected() {
-                        // User is trying to speak - stop AI speech and start active listening
-                        stopSpeaking();
-
-                        // Use the voiceController instead of directly calling startVoiceRecognition
-                        mainHandler.post(() -> {
-                            if (voiceController != null) {
-                                voiceController.startListening();
-                            }
-                        });
-                    }
-                });
+                speechRecognitionManager.stopBackgroundListening();
+            }
+        }
+
+        /**
+         * Speak a whole reply, replacing whatever is being spoken
+         */
+        private void speakWhole(String text) {
+            if (canSpeak()) speakingRequest = this;
+            speakResponse(text);
+        }
+
+        @Override
+        public void onCallStarted(Call call) {
+            if (ticket != null) ticket.attachCall(call);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return ticket != null && ticket.isCancelled();
+        }
+
+        @Override
+        public void onFailure(String userMessage) {
+            failed = true;
+        }
+
+        boolean hasFailed() {
+            return failed;
+        }
+
+        /**
+         * True once the local coach's answer was delivered in place of the remote reply
+         */
+        boolean answeredLocally() {
+            return fallbackShown;
+        }
+
+        /**
+         * Show and speak the local answer if nothing of the remote reply has
+         * arrived after {@code budgetMs}. It is then the request's only response:
+         * the remote reply, or the local answer again if the remote coach fails,
+         * is not delivered.
+         */
+        void startFallbackTimer(String localAnswer, long budgetMs) {
+            mainHandler.postDelayed(() -> {
+                if (finished || !lastPartial.isEmpty()) return;
+                if (ticket != null && ticket.isCancelled()) return;
+
+                Log.d(TAG, "Remote coach is slow, answering with the local coach");
+                fallbackShown = true;
+                callback.onResponseReceived(localAnswer);
+                speakWhole(localAnswer);
+            }, budgetMs);
+        }
+
+        @Override
+        public void onPartialResponse(String textSoFar) {
+            mainHandler.post(() -> {
+                if (ticket != null && ticket.isCancelled()) return;
+                if (fallbackShown) return; // the local answer was shown and is being spoken
+                lastPartial = textSoFar;
+                callback.onPartialResponse(textSoFar);
+
+                int end = lastSentenceEnd(textSoFar, spokenUpTo);
+                if (end > spokenUpTo) {
+                    queueSpeech(textSoFar.substring(spokenUpTo, end), PARTIAL_UTTERANCE_ID);
+                    spokenUpTo = end;
+                }
+            });
+        }
+
+        /**
+         * Speak whatever has not been spoken yet and mark the end of the response
+         */
+        void finish(String response) {
+            finished = true;
+            if (fallbackShown) return;
+            if (spokenUpTo == 0 || !response.startsWith(lastPartial.substring(0, spokenUpTo))) {
+                // Nothing streamed (or the final text differs, e.g. an error message)
+                speakWhole(response);
+                return;
+            }
+            if (!canSpeak()) return;
+
+            String rest = response.substring(spokenUpTo).trim();
+            if (rest.isEmpty()) {
+                textToSpeech.playSilentUtterance(1, TextToSpeech.QUEUE_ADD, UTTERANCE_ID);
+            } else {
+                queueSpeech(rest, UTTERANCE_ID);
+            }
+        }
+
+        private void queueSpeech(String text, String utteranceId) {
+            if (!canSpeak()) return;
+
+            boolean first = spokenUpTo == 0;
+            if (first) {
+                speakingRequest = this;
+                startBargeInListening();
             }
-            // Speak the response as normal
             Bundle params = new Bundle();
-            params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, "ChessCoach");
-            textToSpeech.speak(response, TextToSpeech.QUEUE_FLUSH, params, "ChessCoach");
+            params.putString(TextToSpeech.Engine.KEY_PARAM_UTTERANCE_ID, utteranceId);
+            textToSpeech.speak(text.trim(), first ? TextToSpeech.QUEUE_FLUSH : TextToSpeech.QUEUE_ADD,
+                    params, utteranceId);
+        }
+    }
+
+    /**
+     * Delivers a scheduled request's result to the callback and finishes its speech
+     */
+    private class SpeechResultListener implements CoachRequestScheduler.ResultListener {
+        private final ChessCoachCallback callback;
+        private final StreamingSpeech speech;
+        private final String errorPrefix;
+
+        SpeechResultListener(ChessCoachCallback callback, StreamingSpeech speech, String errorPrefix) {
+            this.callback = callback;
+            this.speech = speech;
+            this.errorPrefix = errorPrefix;
+        }
+
+        @Override
+        public void onResult(String response) {
+            if (speech.answeredLocally()) {
+                Log.d(TAG, "Local coach already answered, not delivering a second response");
+                return;
+            }
+            callback.onResponseReceived(response);
+            if (speech.isBound()) {
+                speech.finish(response);
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.e(TAG, "Coach request failed", e);
+            callback.onError(errorPrefix + e.getMessage());
+        }
+    }
+
+    /**
+     * Index just past the last sentence terminator (followed by whitespace) after {@code from},
+     * or {@code from} if no complete sentence is available yet
+     */
+    private static int lastSentenceEnd(String text, int from) {
+        for (int i = text.length() - 2; i >= from; i--) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?' || c == '\n')
+                    && Character.isWhitespace(text.charAt(i + 1))) {
+                return i + 1;
+            }
         }
+        return from;
     }
 
     public void stopSpeaking() {
@@ -424,6 +799,7 @@ public class ChessCoachManager {
      */
     public void resetConversation() {
         openAIService.resetConversation();
+        localCoach.reset();
     }
 
     /**
@@ -434,6 +810,6 @@ public class ChessCoachManager {
             textToSpeech.stop();
             textToSpeech.shutdown();
         }
-        executorService.shutdown();
+        scheduler.shutdown();
     }
 }
\ No newline at end of file
@@ -141,9 +141,27 @@ public class ChessConversationActivity extends AppCompatActivity {
 
     // Callback for coach responses
     private class CoachResponseCallback implements ChessCoachManager.ChessCoachCallback {
+        // Position of the bubble being filled while the reply streams in, or -1
+        private int streamingPosition = -1;
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (streamingPosition == -1) {
+                addCoachMessage(partialResponse);
+                streamingPosition = adapter.getItemCount() - 1;
+            } else {
+                adapter.updateMessage(streamingPosition, partialResponse);
+            }
+        }
+
         @Override
         public void onResponseReceived(String response) {
-            addCoachMessage(response);
+            if (streamingPosition == -1) {
+                addCoachMessage(response);
+            } else {
+                adapter.updateMessage(streamingPosition, response);
+                scrollToBottom();
+            }
         }
 
         @Override
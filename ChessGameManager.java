@@ -6,6 +6,8 @@ import java.util.List;
 public class ChessGameManager {
     private StockfishManager engine;
     private List<String> moveHistory = new ArrayList<>();
+    private boolean ponderEnabled = false;
+    private TimeManager timeManager = new TimeManager(1000);
 
     public ChessGameManager(StockfishManager engine) {
         this.engine = engine;
@@ -16,8 +18,59 @@ public class ChessGameManager {
 
     public void makeMove(String move) {
         moveHistory.add(move);
-        // Update the engine's position
-        engine.setPositionFromMoves(moveHistory.toArray(new String[0]));
+        // If the engine was pondering on this move it already has the position
+        if (engine.ponderHit(move)) {
+            return;
+        }
+        // Extend the engine's position; it is sent with the next search
+        engine.appendMove(move);
+    }
+
+    /**
+     * The engine's move in the current position, searched as long as the time manager
+     * allows. After a ponder hit this returns as soon as the search that started on
+     * the player's time is done.
+     *
+     * @return the move in UCI notation, or null if there is none
+     */
+    public String getEngineMove() {
+        return engine.getBestMove(timeManager);
+    }
+
+    /**
+     * Let the engine think about its next move while the player thinks, assuming the
+     * reply it expects. Call after the engine's move has been made.
+     *
+     * @return true if the engine is pondering
+     */
+    public boolean startPondering() {
+        return ponderEnabled && engine.startPondering((int) timeManager.ponderBudget(engine.getCurrentFEN()));
+    }
+
+    public void setTimeManager(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    public void setPonderEnabled(boolean enabled) {
+        ponderEnabled = enabled;
+        // Lets the engine plan its time knowing it may get to think on the player's time
+        engine.setOption("Ponder", enabled ? "true" : "false");
+    }
+
+    /**
+     * Take back the last moves (plies)
+     *
+     * @return how many were actually taken back
+     */
+    public int undoMoves(int plies) {
+        int count = Math.min(plies, moveHistory.size());
+        for (int i = 0; i < count; i++) {
+            moveHistory.remove(moveHistory.size() - 1);
+        }
+        if (count > 0) {
+            engine.setPositionFromMoves(moveHistory.toArray(new String[0]));
+        }
+        return count;
     }
 
     /**
@@ -0,0 +1,274 @@
+package com.example.chesspedagogue;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the coach pipeline against a local {@link MockChatServer} and reports
+ * end-to-end latency, throughput and memory use. Blocks; never call it on the main thread.
+ * Runs on a service and coach of its own, without speech, engine or response cache, so
+ * the app's conversation and settings are left as they were. A second pass repeats the
+ * run with slow replies and injected server errors.
+ */
+public class CoachBenchmark {
+    private static final String TAG = "CoachBenchmark";
+    private static final long TURN_TIMEOUT_SECONDS = 60;
+
+    // The faulty pass: a slower server that fails some requests
+    private static final long FAULT_LATENCY_MS = 800;
+    private static final long FAULT_JITTER_MS = 400;
+    private static final double FAULT_ERROR_RATE = 0.2;
+
+    // A short scripted game: position after each move pair, the moves so far and a question
+    private static final String[] FENS = {
+            "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4",
+            "r1bqkb1r/1ppp1ppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 2 5",
+            "r1bqk2r/1pppbppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQ1RK1 w kq - 4 6",
+            "r1bqk2r/2ppbppp/p1n2n2/1p2p3/B3P3/5N2/PPPP1PPP/RNBQR1K1 w kq - 0 7",
+    };
+    private static final String[] MOVES = {"e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6", "O-O", "Be7", "Re1", "b5"};
+    private static final String[] QUESTIONS = {
+            "Why is e4 a good first move?",
+            "What is the idea behind Nc6?",
+            "Should I take on c6 now?",
+            "Why did the bishop retreat to a4?",
+            "Is it time to castle?",
+            "What does b5 threaten?",
+    };
+
+    private final Context context;
+
+    public CoachBenchmark(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Run the benchmark
+     *
+     * @param turns             scripted turns; each sends advice and a chat question at the same time
+     * @param loadThreads       threads sending messages straight to {@link OpenAIService}
+     * @param requestsPerThread messages per load thread
+     * @return a human-readable report
+     */
+    public String run(int turns, int loadThreads, int requestsPerThread) {
+        MockChatServer server = new MockChatServer();
+        MemorySampler memory = new MemorySampler();
+        StringBuilder report = new StringBuilder();
+
+        try {
+            server.start();
+            memory.start();
+
+            report.append(String.format(Locale.US, "Normal server%n"));
+            runPass(server, turns, loadThreads, requestsPerThread, report);
+
+            server.setLatency(FAULT_LATENCY_MS, FAULT_JITTER_MS);
+            server.setErrorRate(FAULT_ERROR_RATE, 500);
+            report.append(String.format(Locale.US, "Slow server, %.0f%% errors%n", FAULT_ERROR_RATE * 100));
+            runPass(server, turns, loadThreads, requestsPerThread, report);
+
+            memory.stop();
+            report.append(String.format(Locale.US, "Heap: %d KB before, %d KB peak, %d KB after",
+                    memory.startKb, memory.peakKb, memory.usedKb()));
+        } catch (Exception e) {
+            Log.e(TAG, "Benchmark failed", e);
+            report.append("Benchmark failed: ").append(e.getMessage());
+        } finally {
+            memory.stop();
+            server.stop();
+        }
+
+        Log.d(TAG, report.toString());
+        return report.toString();
+    }
+
+    /**
+     * The conversation and the load run, on a fresh service and coach
+     */
+    private void runPass(MockChatServer server, int turns, int loadThreads, int requestsPerThread,
+                         StringBuilder report) throws InterruptedException {
+        OpenAIService service = new OpenAIService();
+        service.setApiUrl(server.getUrl());
+        service.setApiKey("mock-key");
+        service.setResponseCacheEnabled(false);
+        ChessCoachManager coach = ChessCoachManager.createDetached(context, service);
+
+        int requestsBefore = server.getRequestCount();
+        int errorsBefore = server.getErrorCount();
+        try {
+            runConversation(coach, turns, report);
+            runLoad(service, loadThreads, requestsPerThread, report);
+        } finally {
+            coach.shutdown();
+        }
+        report.append(String.format(Locale.US, "  mock server: %d requests, %d injected errors%n",
+                server.getRequestCount() - requestsBefore, server.getErrorCount() - errorsBefore));
+    }
+
+    /**
+     * Scripted conversation through ChessCoachManager: advice and a question per turn,
+     * both in flight at once
+     */
+    private void runConversation(ChessCoachManager coach, int turns, StringBuilder report)
+            throws InterruptedException {
+        List<Long> total = Collections.synchronizedList(new ArrayList<>());
+        List<Long> firstText = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = SystemClock.elapsedRealtime();
+        for (int turn = 0; turn < turns; turn++) {
+            int step = turn % FENS.length;
+            List<String> moves = new ArrayList<>(Arrays.asList(MOVES).subList(0, 2 * (step + 1)));
+            CountDownLatch done = new CountDownLatch(2);
+
+            coach.getEnhancedChessAdvice(FENS[step], moves, "white",
+                    new TimingCallback(done, total, firstText, failures));
+            coach.sendMessage(QUESTIONS[step], new TimingCallback(done, total, firstText, failures));
+
+            if (!done.await(TURN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                failures.addAndGet((int) done.getCount());
+            }
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        report.append(String.format(Locale.US,
+                "Conversation: %d turns in %d ms, %d failed%n  end-to-end %s%n  first text %s%n",
+                turns, elapsed, failures.get(), percentiles(total), percentiles(firstText)));
+    }
+
+    /**
+     * Concurrent load straight on the service, to measure throughput
+     */
+    private void runLoad(OpenAIService service, int threads, int requestsPerThread, StringBuilder report)
+            throws InterruptedException {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(threads);
+
+        long start = SystemClock.elapsedRealtime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        long begin = SystemClock.elapsedRealtime();
+                        service.sendMessage(QUESTIONS[(thread + i) % QUESTIONS.length]);
+                        latencies.add(SystemClock.elapsedRealtime() - begin);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "CoachBenchmark-" + t).start();
+        }
+        done.await();
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        int requests = threads * requestsPerThread;
+        report.append(String.format(Locale.US,
+                "Load: %d requests on %d threads in %d ms (%.1f req/s)%n  latency %s%n",
+                requests, threads, elapsed, elapsed > 0 ? requests * 1000.0 / elapsed : 0.0,
+                percentiles(latencies)));
+    }
+
+    private static String percentiles(List<Long> samples) {
+        if (samples.isEmpty()) return "n/a";
+        List<Long> sorted;
+        synchronized (samples) {
+            sorted = new ArrayList<>(samples);
+        }
+        Collections.sort(sorted);
+        return String.format(Locale.US, "p50 %d ms, p95 %d ms, max %d ms",
+                sorted.get(sorted.size() / 2),
+                sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * 0.95))),
+                sorted.get(sorted.size() - 1));
+    }
+
+    /**
+     * Records time to first streamed text and to the full response
+     */
+    private static class TimingCallback implements ChessCoachManager.ChessCoachCallback {
+        private final CountDownLatch done;
+        private final List<Long> total;
+        private final List<Long> firstText;
+        private final AtomicInteger failures;
+        private final long start = SystemClock.elapsedRealtime();
+        private boolean sawText = false;
+
+        TimingCallback(CountDownLatch done, List<Long> total, List<Long> firstText, AtomicInteger failures) {
+            this.done = done;
+            this.total = total;
+            this.firstText = firstText;
+            this.failures = failures;
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (!sawText) {
+                sawText = true;
+                firstText.add(SystemClock.elapsedRealtime() - start);
+            }
+        }
+
+        @Override
+        public void onResponseReceived(String response) {
+            if (!sawText) {
+                sawText = true;
+                firstText.add(SystemClock.elapsedRealtime() - start);
+            }
+            total.add(SystemClock.elapsedRealtime() - start);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String errorMessage) {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onSpeechCompleted() { }
+    }
+
+    /**
+     * Samples the used Java heap while the benchmark runs
+     */
+    private static class MemorySampler {
+        private volatile boolean running;
+        private Thread thread;
+        long startKb;
+        volatile long peakKb;
+
+        void start() {
+            startKb = usedKb();
+            peakKb = startKb;
+            running = true;
+            thread = new Thread(() -> {
+                while (running) {
+                    peakKb = Math.max(peakKb, usedKb());
+                    SystemClock.sleep(50);
+                }
+            }, "CoachBenchmark-memory");
+            thread.start();
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        long usedKb() {
+            Runtime runtime = Runtime.getRuntime();
+            return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.chesspedagogue;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * HTTP layer for the coach API. Each request gets a deadline covering the whole call
+ * (retries and reading the body included). Rate limits (429) and server errors (5xx)
+ * are retried with jittered exponential backoff, honouring Retry-After; failures
+ * before a response arrives are retried the same way.
+ */
+public class CoachHttpClient {
+    private static final String TAG = "CoachHttpClient";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 4000;
+
+    private final OkHttpClient client;
+    private final Random random = new Random();
+
+    /**
+     * Told about every HTTP call before it executes, so it can be cancelled
+     */
+    public interface CallListener {
+        void onCallStarted(Call call);
+
+        /**
+         * True once the caller has given up on the request. OkHttp also cancels a call
+         * whose timeout passed, so a cancelled call alone doesn't mean the caller did.
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    /**
+     * Thrown when the caller cancelled the request, as opposed to it failing or
+     * running out of time
+     */
+    public static class CallCancelledException extends IOException {
+        CallCancelledException() {
+            super("Canceled");
+        }
+    }
+
+    public CoachHttpClient() {
+        // The per-request deadline bounds the whole call; these only catch stalls
+        client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 30, TimeUnit.SECONDS))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(10, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Execute a request, retrying transient failures until the deadline
+     *
+     * @param deadlineMs time allowed for the whole request, retries included
+     * @param listener   told about each attempt's call; may be null
+     * @return the response, which may be unsuccessful if retries ran out. The caller closes it.
+     * @throws CallCancelledException if the listener reports the request cancelled
+     * @throws IOException            on network failure or when the deadline passed
+     */
+    public Response execute(Request request, long deadlineMs, CallListener listener) throws IOException {
+        long deadline = System.currentTimeMillis() + deadlineMs;
+
+        for (int attempt = 1; ; attempt++) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Request deadline of " + deadlineMs + " ms passed");
+            }
+
+            Call call = client.newCall(request);
+            call.timeout().timeout(remaining, TimeUnit.MILLISECONDS);
+            if (listener != null) {
+                listener.onCallStarted(call);
+            }
+
+            Response response;
+            try {
+                response = call.execute();
+            } catch (IOException e) {
+                if (listener != null && listener.isCancelled()) throw new CallCancelledException();
+                if (call.isCanceled()) {
+                    // Cancelled by OkHttp when the call timeout (what was left of the deadline) passed
+                    throw new IOException("Request deadline of " + deadlineMs + " ms passed", e);
+                }
+                long delay = backoff(attempt);
+                if (attempt >= MAX_ATTEMPTS || !waitBeforeRetry(delay, deadline)) throw e;
+                Log.w(TAG, "Attempt " + attempt + " failed (" + e.getMessage() + "), retrying in " + delay + " ms");
+                continue;
+            }
+
+            int code = response.code();
+            if (!isRetryable(code) || attempt >= MAX_ATTEMPTS) {
+                return response;
+            }
+            long delay = retryDelay(response, attempt);
+            if (delay + System.currentTimeMillis() >= deadline) {
+                // No time left to try again; let the caller report this one
+                return response;
+            }
+            response.close();
+            Log.w(TAG, "HTTP " + code + " on attempt " + attempt + ", retrying in " + delay + " ms");
+            if (!waitBeforeRetry(delay, deadline)) {
+                throw new IOException("Interrupted while waiting to retry");
+            }
+        }
+    }
+
+    /**
+     * Rate limits and server errors are worth another try
+     */
+    private static boolean isRetryable(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * Retry-After if the server sent one, otherwise jittered exponential backoff
+     */
+    private long retryDelay(Response response, int attempt) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // Not seconds, so it should be an HTTP date
+                Date date = response.headers().getDate("Retry-After");
+                if (date != null) {
+                    return Math.max(0, date.getTime() - System.currentTimeMillis());
+                }
+            }
+        }
+        return backoff(attempt);
+    }
+
+    /**
+     * Full jitter: a random delay up to an exponentially growing, capped ceiling
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        synchronized (random) {
+            return (long) (random.nextDouble() * ceiling);
+        }
+    }
+
+    /**
+     * Sleep before the next attempt
+     *
+     * @return false if there is no time left for it, or the thread was interrupted
+     */
+    private static boolean waitBeforeRetry(long delayMs, long deadline) {
+        if (System.currentTimeMillis() + delayMs >= deadline) return false;
+        try {
+            Thread.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Builds the coach's system prompt from the game and player context.
+ * Updates only mark the prompt dirty; it is rebuilt at most once per request,
+ * when {@link #build} is called. Sections with nothing new in them are left out.
+ * The position a request is about is not stored here but passed to {@link #build}
+ * as a {@link PositionContext}, so concurrent requests can't pick up each other's.
+ * Not thread-safe; {@link OpenAIService} guards it with its own lock.
+ */
+public class CoachPromptBuilder {
+    private static final String PERSONA =
+            "You are Coach Tal, a patient and encouraging chess coach. " +
+                    "Give clear, concise advice for beginner and intermediate players in simple language, " +
+                    "explain concepts briefly and stay encouraging even when pointing out mistakes. " +
+                    "Keep responses under 3 sentences when possible. ";
+
+    private static final int MAX_CONCEPTS = 15;
+    private static final int MAX_MISTAKES = 5;
+    // Older moves are summarized as a count; the FEN already describes the position
+    private static final int MAX_FULL_MOVES = 20;
+
+    private final Map<String, Object> context = new LinkedHashMap<>();
+    // Insertion-ordered, so the oldest concept is dropped first
+    private final Set<String> concepts = new LinkedHashSet<>();
+    private final List<String> mistakes = new ArrayList<>();
+
+    private String prompt;
+    private boolean dirty = true;
+
+    /**
+     * Set a context entry; a null value removes it
+     */
+    public void putContext(String key, Object value) {
+        Object old = value == null ? context.remove(key) : context.put(key, value);
+        if (!Objects.equals(old, value)) {
+            dirty = true;
+        }
+    }
+
+    public Object getContext(String key) {
+        return context.get(key);
+    }
+
+    /**
+     * Record a concept that has been explained, keeping the most recent ones
+     */
+    public void addConcept(String concept) {
+        if (!concepts.add(concept)) return;
+        trimConcepts();
+        dirty = true;
+    }
+
+    /**
+     * Record several concepts; the prompt is marked dirty once, and only if one is new
+     */
+    public void addConcepts(Collection<String> newConcepts) {
+        boolean added = false;
+        for (String concept : newConcepts) {
+            added |= concepts.add(concept);
+        }
+        if (added) {
+            trimConcepts();
+            dirty = true;
+        }
+    }
+
+    private void trimConcepts() {
+        Iterator<String> oldest = concepts.iterator();
+        while (concepts.size() > MAX_CONCEPTS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Record a mistake pattern, keeping the most recent ones
+     */
+    public void addMistake(String mistake) {
+        mistakes.add(mistake);
+        if (mistakes.size() > MAX_MISTAKES) {
+            mistakes.remove(0);
+        }
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * The system prompt for a request about the given position (null for none).
+     * The part shared by all requests is rebuilt only if something changed since
+     * the last call; the position comes last, so the shared part stays a stable prefix.
+     */
+    public String build(PositionContext position) {
+        String shared = buildShared();
+        return position == null ? shared : shared + " " + position.describe();
+    }
+
+    private String buildShared() {
+        if (!dirty) return prompt;
+
+        StringBuilder sb = new StringBuilder(PERSONA);
+
+        Object skill = context.get("skillLevel");
+        if (skill != null) {
+            sb.append("Player level: ").append(skill).append(". ");
+        }
+
+        if (!mistakes.isEmpty()) {
+            // The same mistake can be recorded several times; name it once
+            sb.append("Recent struggles: ")
+                    .append(String.join(", ", new LinkedHashSet<>(mistakes)))
+                    .append(". Watch for these without repeating yourself. ");
+        }
+
+        if (!concepts.isEmpty()) {
+            sb.append("Already explained: ").append(String.join(", ", concepts))
+                    .append(". Refer to them but don't re-explain unless asked. ");
+        }
+
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            String key = entry.getKey();
+            // Covered by the section above
+            if (key.equals("skillLevel")) continue;
+            appendEntry(sb, key, entry.getValue());
+        }
+
+        prompt = sb.toString().trim();
+        dirty = false;
+        return prompt;
+    }
+
+    private static void appendEntry(StringBuilder sb, String key, Object value) {
+        String text = String.valueOf(value);
+        sb.append(key).append(": ").append(text).append(text.endsWith(".") ? " " : ". ");
+    }
+
+    /**
+     * The position one request is about, with facts that only hold for it (game
+     * phase, board features, engine lines). Filled in by the thread preparing the
+     * request and not changed once it is handed to {@link OpenAIService}.
+     */
+    public static final class PositionContext {
+        public final String fen;
+        public final String playerColor;
+        private final Map<String, Object> facts = new LinkedHashMap<>();
+
+        public PositionContext(String fen, String playerColor) {
+            this.fen = fen != null ? fen : "";
+            this.playerColor = playerColor;
+        }
+
+        /**
+         * Add a fact about the position; a null value removes it
+         */
+        public PositionContext put(String key, Object value) {
+            if (value == null) {
+                facts.remove(key);
+            } else {
+                facts.put(key, value);
+            }
+            return this;
+        }
+
+        String describe() {
+            StringBuilder sb = new StringBuilder();
+            if (!fen.isEmpty()) {
+                sb.append("Current position (FEN): ").append(fen)
+                        .append(". The player is ").append(playerColor).append(". ");
+            }
+            for (Map.Entry<String, Object> entry : facts.entrySet()) {
+                appendEntry(sb, entry.getKey(), entry.getValue());
+            }
+            return sb.toString().trim();
+        }
+    }
+
+    /**
+     * Compact PGN-style move list, e.g. "1.e4 e5 2.Nf3 Nc6". Only the last
+     * {@value #MAX_FULL_MOVES} full moves are written out.
+     */
+    public static String compactMoves(List<String> moves) {
+        if (moves == null || moves.isEmpty()) return "";
+
+        int firstPly = Math.max(0, moves.size() - MAX_FULL_MOVES * 2);
+        firstPly -= firstPly % 2; // start on a white move
+
+        StringBuilder sb = new StringBuilder();
+        if (firstPly > 0) {
+            sb.append("(").append(firstPly / 2).append(" earlier moves) ");
+        }
+        for (int ply = firstPly; ply < moves.size(); ply++) {
+            if (ply % 2 == 0) {
+                if (ply > firstPly) sb.append(' ');
+                sb.append(ply / 2 + 1).append('.');
+            } else {
+                sb.append(' ');
+            }
+            sb.append(moves.get(ply).trim());
+        }
+        return sb.toString();
+    }
+}
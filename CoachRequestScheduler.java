@@ -0,0 +1,331 @@
+package com.example.chesspedagogue;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+
+/**
+ * Runs coach requests on a small worker pool.
+ * <ul>
+ *   <li>Every request belongs to a slot (e.g. "advice", "chat"); submitting to a slot
+ *   cancels whatever was still pending or running there, so only the newest result per
+ *   slot is ever delivered. A request with the same key as the one in flight in its
+ *   slot (a double tap, or voice and button asking the same) joins it instead: the
+ *   work runs once and every listener gets the result.</li>
+ *   <li>Position-bound requests carry the position generation they were made for and
+ *   are cancelled once the game moves on ({@link #advanceGeneration()}).</li>
+ *   <li>USER requests are queued ahead of BACKGROUND ones and, when every worker is busy
+ *   with background work, preempt (cancel) the oldest background request.</li>
+ * </ul>
+ * Cancelling a request cancels its OkHttp {@link Call}, so the network work stops too,
+ * and runs the ticket's cancel action (see {@link Ticket#setOnCancel}).
+ */
+public class CoachRequestScheduler {
+    private static final String TAG = "CoachRequestScheduler";
+
+    /** Generation value for requests that do not depend on the board position */
+    public static final int ANY_POSITION = -1;
+
+    public enum Priority { USER, BACKGROUND }
+
+    /**
+     * The work of a request. Implementations should pass the ticket's
+     * {@link Ticket#attachCall(Call)} the HTTP call they make so it can be cancelled.
+     */
+    public interface Task {
+        String run(Ticket ticket) throws Exception;
+    }
+
+    /**
+     * Receives the result of a request on the delivery executor. Not called at all
+     * if the request was cancelled or superseded.
+     */
+    public interface ResultListener {
+        void onResult(String result);
+        void onError(Exception e);
+    }
+
+    /**
+     * Handle to a submitted request
+     */
+    public static final class Ticket {
+        final String slot;
+        final String key;
+        final Priority priority;
+        final int generation;
+        final long sequence;
+        // Everyone waiting for the result, the submitter first; guarded by the scheduler
+        final List<ResultListener> listeners = new ArrayList<>();
+
+        private volatile boolean cancelled;
+        private Call call;
+        private Runnable onCancel;
+
+        Ticket(String slot, String key, Priority priority, int generation, long sequence) {
+            this.slot = slot;
+            this.key = key;
+            this.priority = priority;
+            this.generation = generation;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Register the HTTP call doing the work; it is cancelled immediately if the
+         * request already was.
+         */
+        public synchronized void attachCall(Call call) {
+            this.call = call;
+            if (cancelled) call.cancel();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Run {@code action} once when the request is cancelled, or at once if it
+         * already was. It may run on any thread, possibly with the scheduler's lock held.
+         */
+        public void setOnCancel(Runnable action) {
+            synchronized (this) {
+                if (!cancelled) {
+                    onCancel = action;
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        void cancel() {
+            Runnable action;
+            synchronized (this) {
+                if (cancelled) return;
+                // Set before the call is cancelled, so its failure is seen as a cancellation
+                // and not as the call timing out (OkHttp cancels those too)
+                cancelled = true;
+                if (call != null) call.cancel();
+                action = onCancel;
+                onCancel = null;
+            }
+            if (action != null) action.run();
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor deliveryExecutor;
+    private final int workers;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by this
+    private final Map<String, Ticket> latestBySlot = new HashMap<>();
+    private final Set<Ticket> running = new HashSet<>();
+    private int generation = 0;
+
+    /**
+     * @param workers number of requests that may run at once
+     * @param deliveryExecutor where results are delivered (e.g. the main thread)
+     */
+    public CoachRequestScheduler(int workers, Executor deliveryExecutor) {
+        this.workers = workers;
+        this.deliveryExecutor = deliveryExecutor;
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The current position generation, to tag requests made for this position
+     */
+    public synchronized int currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * The position changed: cancel every request made for an earlier position
+     */
+    public synchronized int advanceGeneration() {
+        generation++;
+        List<String> stale = new ArrayList<>();
+        for (Map.Entry<String, Ticket> entry : latestBySlot.entrySet()) {
+            Ticket ticket = entry.getValue();
+            if (ticket.generation != ANY_POSITION && ticket.generation < generation) {
+                ticket.cancel();
+                stale.add(entry.getKey());
+            }
+        }
+        for (String slot : stale) latestBySlot.remove(slot);
+        if (!stale.isEmpty()) {
+            Log.d(TAG, "Cancelled " + stale.size() + " requests for an old position");
+        }
+        return generation;
+    }
+
+    /**
+     * Submit a request, superseding any earlier request in the same slot
+     *
+     * @param generation the position generation the request is for, or {@link #ANY_POSITION}
+     */
+    public Ticket submit(String slot, Priority priority, int generation,
+                         Task task, ResultListener listener) {
+        return submit(slot, null, priority, generation, task, listener);
+    }
+
+    /**
+     * Submit a request, joining the one in flight in the same slot if it has the same
+     * key and generation, and superseding it otherwise
+     *
+     * @param key        what the request asks for, or null if it never joins another
+     * @param generation the position generation the request is for, or {@link #ANY_POSITION}
+     * @return the request's ticket; when it joined, the ticket of the request it joined
+     */
+    public Ticket submit(String slot, String key, Priority priority, int generation,
+                         Task task, ResultListener listener) {
+        Ticket ticket = new Ticket(slot, key, priority, generation, sequence.incrementAndGet());
+        ticket.listeners.add(listener);
+
+        synchronized (this) {
+            if (generation != ANY_POSITION && generation < this.generation) {
+                // Already out of date; never run it
+                ticket.cancel();
+                return ticket;
+            }
+            Ticket previous = latestBySlot.get(slot);
+            if (previous != null && key != null && key.equals(previous.key)
+                    && previous.generation == generation && !previous.isCancelled()) {
+                Log.d(TAG, "Joining the identical request in slot " + slot);
+                previous.listeners.add(listener);
+                return previous;
+            }
+            latestBySlot.put(slot, ticket);
+            if (previous != null) previous.cancel();
+
+            if (priority == Priority.USER && running.size() >= workers) {
+                preemptBackground();
+            }
+        }
+
+        executor.execute(new Job(ticket, task));
+        return ticket;
+    }
+
+    /**
+     * Cancel the pending or running request in a slot, if any
+     */
+    public synchronized void cancel(String slot) {
+        Ticket ticket = latestBySlot.remove(slot);
+        if (ticket != null) ticket.cancel();
+    }
+
+    public synchronized void cancelAll() {
+        for (Ticket ticket : latestBySlot.values()) ticket.cancel();
+        latestBySlot.clear();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    // Called with the lock held
+    private void preemptBackground() {
+        Ticket oldest = null;
+        for (Ticket ticket : running) {
+            if (ticket.priority == Priority.BACKGROUND
+                    && (oldest == null || ticket.sequence < oldest.sequence)) {
+                oldest = ticket;
+            }
+        }
+        if (oldest != null) {
+            Log.d(TAG, "Preempting background request in slot " + oldest.slot);
+            oldest.cancel();
+        }
+    }
+
+    private synchronized boolean isLatest(Ticket ticket) {
+        return !ticket.isCancelled() && latestBySlot.get(ticket.slot) == ticket;
+    }
+
+    /**
+     * Take a finished request out of its slot, so nothing joins it any more
+     *
+     * @return the listeners to deliver its result to, or null if it was superseded
+     */
+    private synchronized List<ResultListener> finished(Ticket ticket) {
+        if (!isLatest(ticket)) return null;
+        latestBySlot.remove(ticket.slot);
+        return new ArrayList<>(ticket.listeners);
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        private final Ticket ticket;
+        private final Task task;
+
+        Job(Ticket ticket, Task task) {
+            this.ticket = ticket;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            // USER before BACKGROUND, then first come first served
+            int byPriority = ticket.priority.compareTo(other.ticket.priority);
+            return byPriority != 0 ? byPriority : Long.compare(ticket.sequence, other.ticket.sequence);
+        }
+
+        @Override
+        public void run() {
+            if (ticket.isCancelled()) return;
+
+            synchronized (CoachRequestScheduler.this) {
+                running.add(ticket);
+            }
+            String result = null;
+            Exception error = null;
+            try {
+                result = task.run(ticket);
+            } catch (Exception e) {
+                error = e;
+            } finally {
+                synchronized (CoachRequestScheduler.this) {
+                    running.remove(ticket);
+                }
+            }
+
+            if (!isLatest(ticket)) {
+                Log.d(TAG, "Dropping superseded result for slot " + ticket.slot);
+                return;
+            }
+
+            final String delivered = result;
+            final Exception failure = error;
+            deliveryExecutor.execute(() -> {
+                // Re-check on the delivery thread: a newer request may have arrived meanwhile
+                List<ResultListener> listeners = finished(ticket);
+                if (listeners == null) return;
+                for (ResultListener listener : listeners) {
+                    if (failure != null) {
+                        listener.onError(failure);
+                    } else {
+                        listener.onResult(delivered);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.chesspedagogue;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of coach replies keyed by position, player colour, prompt kind and
+ * skill context. Entries expire after a TTL, the least recently used entry is
+ * evicted when the cache is full, and the cache is mirrored to a JSON file so
+ * explanations survive app restarts.
+ */
+public class CoachResponseCache {
+    private static final String TAG = "CoachResponseCache";
+    private static final String FILE_NAME = "coach_response_cache.json";
+
+    private final int maxEntries;
+    private final long ttlMs;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Gson gson = new Gson();
+    private File file;
+    private boolean loaded = true;
+
+    public CoachResponseCache(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Build a cache key. Only the first four FEN fields are used, so the same
+     * position reached at a different move number still hits.
+     */
+    public static String key(String fen, String playerColor, String promptKind, Object skillContext) {
+        String position = fen == null ? "" : fen.trim();
+        int fields = 0;
+        for (int i = 0; i < position.length(); i++) {
+            if (position.charAt(i) == ' ' && ++fields == 4) {
+                position = position.substring(0, i);
+                break;
+            }
+        }
+        return position + "|" + playerColor + "|" + promptKind + "|"
+                + (skillContext == null ? "any" : skillContext);
+    }
+
+    /**
+     * Mirror the cache to a file in the given directory. The file is read lazily
+     * on first access, so this is safe to call from the main thread.
+     */
+    public synchronized void setDirectory(File dir) {
+        file = new File(dir, FILE_NAME);
+        loaded = false;
+    }
+
+    /**
+     * Get a cached reply, or null if there is none or it has expired
+     */
+    public synchronized String get(String key) {
+        ensureLoaded();
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.response;
+    }
+
+    public synchronized void put(String key, String response) {
+        ensureLoaded();
+        entries.put(key, new Entry(key, response, System.currentTimeMillis()));
+        evict();
+        persist();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        persist();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt > ttlMs;
+    }
+
+    /**
+     * Drop expired entries, then the least recently used ones until within size
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (isExpired(entry, now) || entries.size() > maxEntries) {
+                it.remove();
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (file == null || !file.exists()) return;
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            List<Entry> stored = gson.fromJson(reader, new TypeToken<List<Entry>>() { }.getType());
+            if (stored != null) {
+                // Stored oldest-used first, so re-inserting restores the LRU order
+                for (Entry entry : stored) {
+                    if (entry != null && entry.key != null && entry.response != null) {
+                        entries.put(entry.key, entry);
+                    }
+                }
+                evict();
+            }
+            Log.d(TAG, "Loaded " + entries.size() + " cached coach responses");
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read response cache, starting empty", e);
+            entries.clear();
+        }
+    }
+
+    private void persist() {
+        if (file == null) return;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(new ArrayList<>(entries.values()), writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write response cache", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Could not replace response cache file");
+        }
+    }
+
+    private static class Entry {
+        @SerializedName("key")
+        String key;
+
+        @SerializedName("response")
+        String response;
+
+        @SerializedName("createdAt")
+        long createdAt;
+
+        Entry(String key, String response, long createdAt) {
+            this.key = key;
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Finds which chess concepts a coach reply talks about, in a single pass over the text.
+ * All keywords are compiled into one Aho-Corasick automaton (case-insensitive, ASCII),
+ * so the cost is one table lookup per character however many keywords there are.
+ * A concept is a set of keyword groups: it matches when every group has at least one
+ * keyword in the text. Text can be fed in pieces, e.g. as streamed tokens arrive.
+ */
+public class ConceptMatcher {
+    private static final int ALPHABET = 128;
+
+    // Concept -> required keyword groups
+    private final Map<String, List<String[]>> dictionary = new LinkedHashMap<>();
+
+    // Compiled automaton, rebuilt when the dictionary changes
+    private boolean dirty = true;
+    private String[] conceptNames;
+    private int[] fullMasks;          // per concept, all of its groups satisfied
+    private int[][] transitions;      // state x char -> state
+    private long[][] outputs;         // state -> packed (concept << 32 | group bit) hits
+
+    /**
+     * The concepts the coach tracks
+     */
+    public static ConceptMatcher chessConcepts() {
+        return new ConceptMatcher()
+                .add("pins", "pin")
+                .add("forks", "fork")
+                .add("skewers", "skewer")
+                .add("discovered attacks", "discovered").add("discovered attacks", "check", "attack")
+                .add("doubled pawns", "doubled").add("doubled pawns", "pawn")
+                .add("isolated pawns", "isolated").add("isolated pawns", "pawn")
+                .add("castling", "castl", "castle")
+                .add("development", "develop").add("development", "piece", "knight", "bishop")
+                .add("center control", "center", "central");
+    }
+
+    /**
+     * Add a keyword group to a concept: the concept then also needs one of these
+     * keywords to match. Keywords are matched as substrings, ignoring case.
+     */
+    public synchronized ConceptMatcher add(String concept, String... anyOf) {
+        List<String[]> groups = dictionary.get(concept);
+        if (groups == null) {
+            groups = new ArrayList<>();
+            dictionary.put(concept, groups);
+        }
+        if (groups.size() == Integer.SIZE - 1) {
+            throw new IllegalArgumentException("Too many keyword groups for " + concept);
+        }
+        groups.add(anyOf.clone());
+        dirty = true;
+        return this;
+    }
+
+    /**
+     * Concepts mentioned in a complete text
+     */
+    public Set<String> match(CharSequence text) {
+        Scan scan = newScan();
+        scan.feed(text);
+        return scan.matches();
+    }
+
+    /**
+     * Start scanning a text that arrives in pieces
+     */
+    public synchronized Scan newScan() {
+        if (dirty) compile();
+        return new Scan(conceptNames, fullMasks, transitions, outputs);
+    }
+
+    /**
+     * Incremental scan state. Not thread-safe; use one per text.
+     */
+    public static final class Scan {
+        private final String[] conceptNames;
+        private final int[] fullMasks;
+        private final int[][] transitions;
+        private final long[][] outputs;
+        private final int[] seen;
+        private int state = 0;
+
+        Scan(String[] conceptNames, int[] fullMasks, int[][] transitions, long[][] outputs) {
+            this.conceptNames = conceptNames;
+            this.fullMasks = fullMasks;
+            this.transitions = transitions;
+            this.outputs = outputs;
+            this.seen = new int[conceptNames.length];
+        }
+
+        public void feed(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= ALPHABET) {
+                    state = 0; // keywords are ASCII, so nothing can match across this
+                    continue;
+                }
+                state = transitions[state][Character.toLowerCase(c)];
+                for (long hit : outputs[state]) {
+                    seen[(int) (hit >>> 32)] |= (int) hit;
+                }
+            }
+        }
+
+        public Set<String> matches() {
+            Set<String> found = new LinkedHashSet<>();
+            for (int i = 0; i < conceptNames.length; i++) {
+                if (seen[i] == fullMasks[i]) found.add(conceptNames[i]);
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Build the goto/failure automaton and flatten it into a transition table
+     */
+    private void compile() {
+        conceptNames = dictionary.keySet().toArray(new String[0]);
+        fullMasks = new int[conceptNames.length];
+
+        // Trie of all keywords; each node collects the (concept, group) pairs ending there
+        List<int[]> trie = new ArrayList<>();
+        List<List<Long>> hits = new ArrayList<>();
+        trie.add(newNode());
+        hits.add(new ArrayList<>());
+
+        for (int concept = 0; concept < conceptNames.length; concept++) {
+            List<String[]> groups = dictionary.get(conceptNames[concept]);
+            for (int group = 0; group < groups.size(); group++) {
+                int bit = 1 << group;
+                fullMasks[concept] |= bit;
+                for (String keyword : groups.get(group)) {
+                    int node = 0;
+                    for (char c : keyword.toLowerCase().toCharArray()) {
+                        if (c >= ALPHABET) throw new IllegalArgumentException("Non-ASCII keyword: " + keyword);
+                        if (trie.get(node)[c] < 0) {
+                            trie.get(node)[c] = trie.size();
+                            trie.add(newNode());
+                            hits.add(new ArrayList<>());
+                        }
+                        node = trie.get(node)[c];
+                    }
+                    hits.get(node).add(((long) concept << 32) | bit);
+                }
+            }
+        }
+
+        // Breadth-first: fill missing transitions from the failure links and
+        // inherit the hits of each node's longest proper suffix
+        int[] fail = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        int[] root = trie.get(0);
+        for (int c = 0; c < ALPHABET; c++) {
+            if (root[c] < 0) {
+                root[c] = 0;
+            } else {
+                fail[root[c]] = 0;
+                queue.add(root[c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            hits.get(node).addAll(hits.get(fail[node]));
+            int[] next = trie.get(node);
+            for (int c = 0; c < ALPHABET; c++) {
+                if (next[c] < 0) {
+                    next[c] = trie.get(fail[node])[c];
+                } else {
+                    fail[next[c]] = trie.get(fail[node])[c];
+                    queue.add(next[c]);
+                }
+            }
+        }
+
+        transitions = trie.toArray(new int[0][]);
+        outputs = new long[hits.size()][];
+        for (int i = 0; i < outputs.length; i++) {
+            List<Long> nodeHits = hits.get(i);
+            outputs[i] = new long[nodeHits.size()];
+            for (int j = 0; j < nodeHits.size(); j++) {
+                outputs[i][j] = nodeHits.get(j);
+            }
+        }
+        dirty = false;
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+}
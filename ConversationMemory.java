@@ -0,0 +1,192 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Conversation history kept within a token budget.
+ * When the turns grow past the budget, the oldest user/assistant pairs are folded
+ * into a short rolling summary instead of being resent in full. Position context
+ * (FEN strings and numbered move lists) is only kept in the newest question, since
+ * the system prompt already carries the current position.
+ * Not thread-safe; {@link OpenAIService} guards it with its own lock.
+ */
+public class ConversationMemory {
+    // Rough size of the JSON wrapper around each message, in tokens
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int SUMMARY_MAX_CHARS = 800;
+    private static final int GIST_MAX_CHARS = 120;
+
+    private static final Pattern FEN = Pattern.compile(
+            "[pnbrqkPNBRQK1-8]{1,8}(?:/[pnbrqkPNBRQK1-8]{1,8}){7}(?: [wb] [KQkq-]{1,4} [a-h1-8-]{1,2}(?: \\d+ \\d+)?)?");
+    private static final Pattern MOVE_LIST = Pattern.compile("(?m)(?:^\\d+\\.\\s[^\\n]*(?:\\n|$)){2,}");
+    private static final Pattern COMPACT_MOVES = Pattern.compile("(?m)^Moves: .*$");
+
+    /**
+     * One message of the conversation
+     */
+    public static final class Turn {
+        public final String role;
+        String content;
+        boolean awaitingReply; // a question whose request is still running
+
+        Turn(String role, String content) {
+            this.role = role;
+            this.content = content;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+
+    private final int tokenBudget;
+    private final List<Turn> turns = new ArrayList<>();
+    private final Deque<String> summaryLines = new ArrayDeque<>();
+    private int summaryChars = 0;
+
+    /**
+     * @param tokenBudget estimated tokens the turns may use before older ones are summarized
+     */
+    public ConversationMemory(int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * Rough token count for a piece of text (about four characters per token)
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Add a question from the user. Earlier turns lose their position context and
+     * the oldest pairs are summarized if the budget is exceeded.
+     */
+    public Turn addUser(String content) {
+        for (Turn turn : turns) {
+            turn.content = stripPositionContext(turn.content);
+        }
+        Turn turn = new Turn("user", content);
+        turn.awaitingReply = true;
+        turns.add(turn);
+        enforceBudget();
+        return turn;
+    }
+
+    /**
+     * Add the assistant's reply right after the question it answers
+     */
+    public void addReply(Turn question, String reply) {
+        question.awaitingReply = false;
+        int index = turns.indexOf(question);
+        Turn turn = new Turn("assistant", reply);
+        if (index >= 0) {
+            turns.add(index + 1, turn);
+        } else {
+            turns.add(turn);
+        }
+        enforceBudget();
+    }
+
+    /**
+     * Remove a turn, e.g. a question whose request failed
+     */
+    public void remove(Turn turn) {
+        turns.remove(turn);
+    }
+
+    public List<Turn> getTurns() {
+        return Collections.unmodifiableList(turns);
+    }
+
+    /**
+     * Summary of the turns that no longer fit, or an empty string
+     */
+    public String getSummary() {
+        return String.join("\n", summaryLines);
+    }
+
+    /**
+     * Estimated tokens of the turns and summary as they would be sent
+     */
+    public int estimatedTokens() {
+        int total = summaryLines.isEmpty() ? 0 : estimateTokens(getSummary()) + MESSAGE_OVERHEAD_TOKENS;
+        for (Turn turn : turns) {
+            total += estimateTokens(turn.content) + MESSAGE_OVERHEAD_TOKENS;
+        }
+        return total;
+    }
+
+    public void clear() {
+        turns.clear();
+        summaryLines.clear();
+        summaryChars = 0;
+    }
+
+    /**
+     * Fold the oldest turns into the summary until within budget, always keeping
+     * the newest turn. A question is folded together with its answer; folding stops
+     * at a question still waiting for one (another request may be running), so its
+     * reply can be put back right after it. The budget may then be exceeded until
+     * that reply arrives.
+     */
+    private void enforceBudget() {
+        while (turns.size() > 1 && estimatedTokens() > tokenBudget) {
+            if (turns.get(0).awaitingReply) break;
+            Turn oldest = turns.remove(0);
+            Turn answer = null;
+            if (oldest.role.equals("user") && turns.size() > 1 && turns.get(0).role.equals("assistant")) {
+                answer = turns.remove(0);
+            }
+            summarize(oldest, answer);
+        }
+    }
+
+    private void summarize(Turn first, Turn answer) {
+        StringBuilder line = new StringBuilder("- ");
+        line.append(first.role.equals("user") ? "Player: " : "Coach: ").append(gist(first.content));
+        if (answer != null) {
+            line.append(" Coach: ").append(gist(answer.content));
+        }
+        // Repeated requests (e.g. asking for advice every move) summarize the same way
+        if (summaryLines.contains(line.toString())) return;
+        summaryLines.addLast(line.toString());
+        summaryChars += line.length();
+
+        // The summary itself rolls: the oldest lines go first
+        while (summaryChars > SUMMARY_MAX_CHARS && summaryLines.size() > 1) {
+            summaryChars -= summaryLines.removeFirst().length();
+        }
+    }
+
+    /**
+     * First sentence of a message, without position context, capped in length
+     */
+    private static String gist(String text) {
+        String compact = stripPositionContext(text).replaceAll("\\s+", " ").trim();
+        int end = compact.length();
+        for (int i = 0; i < compact.length() - 1; i++) {
+            char c = compact.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') && compact.charAt(i + 1) == ' ') {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end > GIST_MAX_CHARS) {
+            return compact.substring(0, GIST_MAX_CHARS - 3) + "...";
+        }
+        return compact.substring(0, end);
+    }
+
+    static String stripPositionContext(String text) {
+        if (text == null) return "";
+        String stripped = FEN.matcher(text).replaceAll("[earlier position]");
+        stripped = COMPACT_MOVES.matcher(stripped).replaceAll("Moves: [earlier moves]");
+        return MOVE_LIST.matcher(stripped).replaceAll("[earlier moves]\n");
+    }
+}
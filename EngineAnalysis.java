@@ -0,0 +1,197 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Types for {@link StockfishManager#analyse}: the limits of an analysis search, the
+ * principal variations it reports, and a listener for updates while it runs.
+ */
+public final class EngineAnalysis {
+    private EngineAnalysis() {
+    }
+
+    /**
+     * How long an analysis searches. Whichever limit is reached first ends it.
+     */
+    public static final class Limits {
+        public final int depth;        // 0 for no depth limit
+        public final long movetimeMs;  // 0 for no time limit
+        public final long nodes;       // 0 for no node limit
+        // Only these root moves are searched ("go searchmoves"); empty for all
+        public final List<String> searchMoves;
+
+        public Limits(int depth, long movetimeMs, long nodes) {
+            this(depth, movetimeMs, nodes, Collections.emptyList());
+        }
+
+        private Limits(int depth, long movetimeMs, long nodes, List<String> searchMoves) {
+            this.depth = depth;
+            this.movetimeMs = movetimeMs;
+            this.nodes = nodes;
+            this.searchMoves = Collections.unmodifiableList(new ArrayList<>(searchMoves));
+        }
+
+        public static Limits movetime(long movetimeMs) {
+            return new Limits(0, movetimeMs, 0);
+        }
+
+        public static Limits depthAndTime(int depth, long movetimeMs) {
+            return new Limits(depth, movetimeMs, 0);
+        }
+
+        /**
+         * The same limits, searching only the given root moves
+         */
+        public Limits withSearchMoves(List<String> moves) {
+            return new Limits(depth, movetimeMs, nodes, moves);
+        }
+
+        /**
+         * The arguments of the go command, e.g. " depth 15 movetime 2000"
+         */
+        String goArguments() {
+            StringBuilder go = new StringBuilder();
+            if (depth > 0) go.append(" depth ").append(depth);
+            if (nodes > 0) go.append(" nodes ").append(nodes);
+            if (movetimeMs > 0) go.append(" movetime ").append(movetimeMs);
+            // Last, as it takes every move up to the end of the command
+            if (!searchMoves.isEmpty()) go.append(" searchmoves ").append(String.join(" ", searchMoves));
+            return go.toString();
+        }
+
+        /**
+         * How long to wait before stopping the search; searches without a time limit
+         * still get a generous one, as analysis is never meant to be infinite here
+         */
+        long timeoutMs() {
+            return movetimeMs > 0 ? movetimeMs : 30000;
+        }
+    }
+
+    /**
+     * One principal variation at the depth it was last reported at. Scores are from
+     * the side to move's point of view.
+     */
+    public static final class Line {
+        // Centipawn value given to a mate, less the moves it takes, for ordering lines
+        private static final int MATE_SCORE = 100000;
+
+        public final int multipv;      // rank of the line, 1 for the best
+        public final int depth;
+        public final int selDepth;
+        public final boolean mate;     // true if the score is a mate distance
+        public final int score;        // centipawns, or moves to mate (negative: getting mated)
+        public final long nodes;
+        public final List<String> moves;
+
+        Line(int multipv, int depth, int selDepth, boolean mate, int score, long nodes, List<String> moves) {
+            this.multipv = multipv;
+            this.depth = depth;
+            this.selDepth = selDepth;
+            this.mate = mate;
+            this.score = score;
+            this.nodes = nodes;
+            this.moves = Collections.unmodifiableList(moves);
+        }
+
+        /**
+         * Parse an "info ... score ... pv ..." line
+         *
+         * @return null if the line has no variation with an exact score (bounds from a
+         * failed aspiration window are skipped; the re-search reports the real score)
+         */
+        public static Line parse(String info) {
+            if (!info.startsWith("info ") || !info.contains(" pv ") || !info.contains(" score ")) return null;
+            if (info.contains(" lowerbound") || info.contains(" upperbound")) return null;
+
+            String[] parts = info.split("\\s+");
+            int multipv = 1;
+            int depth = 0;
+            int selDepth = 0;
+            boolean mate = false;
+            Integer score = null;
+            long nodes = 0;
+            try {
+                for (int i = 1; i < parts.length - 1; i++) {
+                    switch (parts[i]) {
+                        case "multipv":
+                            multipv = Integer.parseInt(parts[++i]);
+                            break;
+                        case "depth":
+                            depth = Integer.parseInt(parts[++i]);
+                            break;
+                        case "seldepth":
+                            selDepth = Integer.parseInt(parts[++i]);
+                            break;
+                        case "nodes":
+                            nodes = Long.parseLong(parts[++i]);
+                            break;
+                        case "score":
+                            if (i + 2 >= parts.length) return null;
+                            mate = parts[i + 1].equals("mate");
+                            score = Integer.parseInt(parts[i + 2]);
+                            i += 2;
+                            break;
+                        case "pv":
+                            if (score == null) return null;
+                            return new Line(multipv, depth, selDepth, mate, score, nodes,
+                                    new ArrayList<>(Arrays.asList(parts).subList(i + 1, parts.length)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return null;
+        }
+
+        /**
+         * The first move of the variation
+         */
+        public String move() {
+            return moves.isEmpty() ? null : moves.get(0);
+        }
+
+        /**
+         * The score as one number for comparing lines: mates rank above any
+         * centipawn score, quicker mates above slower ones
+         */
+        public int sortScore() {
+            if (!mate) return score;
+            return score > 0 ? MATE_SCORE - score : -MATE_SCORE - score;
+        }
+
+        /**
+         * "+0.35", or "mate in 3" ("mate in -2" when getting mated)
+         */
+        public String scoreText() {
+            return mate ? "mate in " + score : String.format(Locale.US, "%+.2f", score / 100.0f);
+        }
+
+        /**
+         * The first moves and the score, e.g. "e2e4 e7e5 g1f3 (+0.35)"
+         */
+        public String describe(int maxMoves) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < moves.size() && i < maxMoves; i++) {
+                if (text.length() > 0) text.append(' ');
+                text.append(moves.get(i));
+            }
+            return text + " (" + scoreText() + ")";
+        }
+    }
+
+    /**
+     * Told whenever a variation is reported at a new depth; called on the thread
+     * running the analysis
+     */
+    public interface Listener {
+        /**
+         * @param lines the latest line for each variation reported so far, best first
+         */
+        void onUpdate(List<Line> lines);
+    }
+}
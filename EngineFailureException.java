@@ -0,0 +1,13 @@
+package com.example.chesspedagogue;
+
+import java.io.IOException;
+
+/**
+ * The engine died or stopped answering. Exchanges waiting on it get this as soon as
+ * the watchdog notices, instead of running into their timeouts.
+ */
+public class EngineFailureException extends IOException {
+    public EngineFailureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.chesspedagogue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of engine output lines with one writer and any number of readers.
+ * Adding a line stores it in the next slot and advances a sequence counter: no
+ * locks and no copying. Each reader has a {@link Cursor} holding the sequence of
+ * the next line it wants, so it only looks at lines it hasn't seen yet. A reader
+ * that falls more than a ring's worth behind skips to the oldest line still held.
+ * Closing the ring wakes every waiting reader, e.g. when the engine has died.
+ */
+public class EngineOutputRing {
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+
+    // Sequence of the next line to be written. The slot for head - capacity may be
+    // being overwritten, so lines [head - capacity + 1, head) are readable.
+    private final AtomicLong head = new AtomicLong();
+
+    // Readers blocked in Cursor.poll; the writer only takes the lock when there are some
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object signal = new Object();
+
+    // No more lines are coming; waits return at once instead of running out their timeout
+    private volatile boolean closed;
+
+    /**
+     * @param capacity number of lines kept, a power of two
+     */
+    public EngineOutputRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Append a line. Only one thread may add at a time.
+     */
+    public void add(String line) {
+        long sequence = head.get();
+        slots.set((int) (sequence & mask), line);
+        head.set(sequence + 1);
+
+        if (waiters.get() > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wake all waiting readers; until {@link #reopen} waits return without blocking
+     */
+    public void close() {
+        closed = true;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Make waits block again, e.g. once a restarted engine writes to the ring
+     */
+    public void reopen() {
+        closed = false;
+    }
+
+    /**
+     * A cursor that will see every line added from now on
+     */
+    public Cursor cursor() {
+        return new Cursor(head.get());
+    }
+
+    /**
+     * One reader's position in the ring. Not thread-safe; use one per reader.
+     */
+    public final class Cursor {
+        private long next;
+        private long dropped;
+
+        Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * The next unread line, or null if there is none yet
+         */
+        public String poll() {
+            while (true) {
+                long written = head.get();
+                if (next >= written) return null;
+
+                long oldest = written - slots.length() + 1;
+                if (next < oldest) {
+                    dropped += oldest - next;
+                    next = oldest;
+                }
+                String line = slots.get((int) (next & mask));
+                // Keep it only if the writer hasn't started reusing the slot meanwhile
+                if (head.get() - next < slots.length()) {
+                    next++;
+                    return line;
+                }
+            }
+        }
+
+        /**
+         * The next unread line, waiting for one to arrive
+         *
+         * @return null if none arrived within the timeout, the ring was closed or the
+         * thread was interrupted
+         */
+        public String poll(long timeoutMs) {
+            String line = poll();
+            if (line != null || timeoutMs <= 0 || closed) return line;
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            waiters.incrementAndGet();
+            try {
+                synchronized (signal) {
+                    while ((line = poll()) == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0 || closed) return null;
+                        TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+                    }
+                }
+                return line;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        /**
+         * Skip lines until one starts with the prefix
+         *
+         * @return that line, or null if none arrived within the timeout
+         */
+        public String awaitLine(String prefix, long timeoutMs) {
+            long endTime = System.currentTimeMillis() + timeoutMs;
+            String line;
+            while ((line = poll(endTime - System.currentTimeMillis())) != null) {
+                if (line.startsWith(prefix)) return line;
+            }
+            return null;
+        }
+
+        /**
+         * Lines this cursor missed because it fell too far behind
+         */
+        public long dropped() {
+            return dropped;
+        }
+    }
+}
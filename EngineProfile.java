@@ -0,0 +1,132 @@
+package com.example.chesspedagogue;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Engine Threads and Hash for this device, worked out from the core count, the
+ * app's memory class and the thermal state. Play only needs a small share of the
+ * device, since the coach, speech and the board run alongside and searches are
+ * short; batch analysis gets more. Both shrink when the device is hot (threads)
+ * or short of memory (hash).
+ */
+public final class EngineProfile {
+    private static final String TAG = "EngineProfile";
+
+    public enum Use {
+        PLAY,
+        ANALYSIS
+    }
+
+    // Threads for analysis never exceed this; on big.LITTLE phones more cores only add little ones
+    private static final int MAX_ANALYSIS_THREADS = 4;
+
+    private static final int PLAY_HASH_MB = 32;
+    private static final int ANALYSIS_HASH_MB = 128;
+    private static final int MIN_HASH_MB = 8;
+    // Hash when the system reports low memory or the device is a low-RAM one
+    private static final int LOW_MEMORY_HASH_MB = 16;
+
+    // PowerManager thermal states, available from API 29
+    private static final int THERMAL_NONE = 0;
+    private static final int THERMAL_MODERATE = 2;
+    private static final int THERMAL_SEVERE = 3;
+
+    public final Use use;
+    public final int threads;
+    public final int hashMb;
+    // The system reported low memory (or a low-RAM device) when the profile was made
+    public final boolean lowMemory;
+
+    private EngineProfile(Use use, int threads, int hashMb, boolean lowMemory) {
+        this.use = use;
+        this.threads = threads;
+        this.hashMb = hashMb;
+        this.lowMemory = lowMemory;
+    }
+
+    /**
+     * The profile for the device as it is now
+     */
+    public static EngineProfile forDevice(Context context, Use use) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int memoryClass = 64;
+        long availableMb = Long.MAX_VALUE;
+        boolean lowMemory = false;
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            memoryClass = activityManager.getMemoryClass();
+            ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+            activityManager.getMemoryInfo(memoryInfo);
+            availableMb = memoryInfo.availMem / (1024 * 1024);
+            lowMemory = memoryInfo.lowMemory || activityManager.isLowRamDevice();
+        }
+
+        int thermal = thermalStatus(context);
+        EngineProfile profile = compute(use, cores, memoryClass, availableMb, lowMemory, thermal);
+        Log.d(TAG, String.format(Locale.US, "%s (%d cores, memory class %d MB, %d MB free%s, thermal %d)",
+                profile, cores, memoryClass, availableMb, lowMemory ? ", low" : "", thermal));
+        return profile;
+    }
+
+    static EngineProfile compute(Use use, int cores, int memoryClass, long availableMb,
+                                 boolean lowMemory, int thermalStatus) {
+        // Leave most of the cores to the UI, speech and coach while playing
+        int threads = use == Use.PLAY
+                ? (cores >= 6 ? 2 : 1)
+                : Math.min(MAX_ANALYSIS_THREADS, Math.max(1, cores / 2));
+        if (thermalStatus >= THERMAL_SEVERE) {
+            threads = 1;
+        } else if (thermalStatus >= THERMAL_MODERATE) {
+            threads = Math.max(1, threads / 2);
+        }
+
+        // The hash lives outside the Java heap, but the memory class tells how much
+        // the system expects one app to use; stay within half of it and an eighth of
+        // what is free
+        long hash = use == Use.PLAY ? PLAY_HASH_MB : ANALYSIS_HASH_MB;
+        hash = Math.min(hash, memoryClass / 2);
+        hash = Math.min(hash, availableMb / 8);
+        if (lowMemory) {
+            hash = Math.min(hash, LOW_MEMORY_HASH_MB);
+        }
+        // Round to a power of two, so a little more or less free memory doesn't
+        // resize (and clear) the table when the profile is applied again
+        int hashMb = Math.max(MIN_HASH_MB, Integer.highestOneBit((int) Math.max(1, hash)));
+
+        return new EngineProfile(use, threads, hashMb, lowMemory);
+    }
+
+    /**
+     * This profile's threads with the hash of {@code current}, for when only the
+     * thread count should follow the device: resizing the hash clears it
+     */
+    public EngineProfile keepingHashOf(EngineProfile current) {
+        if (current == null || current.hashMb == hashMb) return this;
+        return new EngineProfile(use, threads, current.hashMb, lowMemory);
+    }
+
+    /**
+     * The current PowerManager thermal status, or THERMAL_STATUS_NONE where unknown
+     */
+    static int thermalStatus(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return THERMAL_NONE;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null ? powerManager.getCurrentThermalStatus() : THERMAL_NONE;
+    }
+
+    public boolean sameAs(EngineProfile other) {
+        return other != null && threads == other.threads && hashMb == other.hashMb;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d threads, %d MB hash", use, threads, hashMb);
+    }
+}
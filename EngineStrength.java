@@ -0,0 +1,59 @@
+package com.example.chesspedagogue;
+
+/**
+ * Playing strength for a level of the strength slider (0-20). Levels in the engine's
+ * UCI_Elo range limit strength by Elo; the lowest levels, below that range, use Skill
+ * Level. Each limited level also gets a node budget per move, so the engine plays
+ * the same on a fast phone as on a slow one, and weak levels search very little.
+ */
+public final class EngineStrength {
+    public static final int MAX_LEVEL = 20;
+
+    // UCI_Elo range accepted by the engine; values outside it are ignored
+    static final int MIN_UCI_ELO = 1350;
+    static final int MAX_UCI_ELO = 2850;
+
+    // Nodes at level 0, growing by half with each level
+    private static final long BASE_NODES = 1000;
+    private static final double NODE_GROWTH = 1.5;
+
+    public final int level;
+    // Approximate rating, as shown on the slider
+    public final int elo;
+    // Node budget for an ordinary move, or 0 for no limit (full strength)
+    public final long nodes;
+
+    private EngineStrength(int level, int elo, long nodes) {
+        this.level = level;
+        this.elo = elo;
+        this.nodes = nodes;
+    }
+
+    public static EngineStrength forLevel(int level) {
+        level = Math.max(0, Math.min(MAX_LEVEL, level));
+        int elo = 800 + level * 110;
+        long nodes = elo > MAX_UCI_ELO ? 0 : Math.round(BASE_NODES * Math.pow(NODE_GROWTH, level));
+        return new EngineStrength(level, elo, nodes);
+    }
+
+    /**
+     * True at the top levels, which play at full strength with time-based searches
+     */
+    public boolean isFullStrength() {
+        return nodes == 0;
+    }
+
+    /**
+     * True if strength is limited through UCI_Elo; below its range Skill Level is used
+     */
+    public boolean usesUciElo() {
+        return !isFullStrength() && elo >= MIN_UCI_ELO;
+    }
+
+    /**
+     * Skill Level for the levels below the UCI_Elo range
+     */
+    public int skillLevel() {
+        return isFullStrength() || usesUciElo() ? 20 : level;
+    }
+}
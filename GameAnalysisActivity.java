@@ -2,17 +2,24 @@ package com.example.chesspedagogue;
 
 import android.annotation.SuppressLint;
 //import android.content.Intent;
+import android.graphics.Bitmap;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 //import android.view.View;
 import android.widget.Button;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Activity for analyzing chess games move by move with Stockfish engine.
@@ -20,6 +27,8 @@ import java.util.List;
 public class GameAnalysisActivity extends AppCompatActivity {
 
     private static final String TAG = "GameAnalysisActivity";
+    // Candidate moves shown for each position
+    private static final int TOP_MOVES = 3;
 
     // Core components
     private StockfishManager engine;
@@ -29,6 +38,13 @@ public class GameAnalysisActivity extends AppCompatActivity {
     private ArrayList<String> moveHistory;
     private int currentMoveIndex = -1; // -1 means initial position
     private String[] positions; // FEN positions for each move
+    private PositionSnapshot[] snapshots; // Board snapshots for each move, built once
+
+    // Scrubbing support: a few pre-rendered frames around the current ply
+    private static final int FRAME_RING_SIZE = 5;
+    private final BoardFrameRing frameRing = new BoardFrameRing(FRAME_RING_SIZE);
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private int prerenderCenter = 0;
 
     // UI components
     private TextView moveInfoTextView;
@@ -36,6 +52,7 @@ public class GameAnalysisActivity extends AppCompatActivity {
     private Button prevButton;
     private Button nextButton;
     private Button analyzeButton;
+    private SeekBar moveSeekBar;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +66,7 @@ public class GameAnalysisActivity extends AppCompatActivity {
         prevButton = findViewById(R.id.prevMoveButton);
         nextButton = findViewById(R.id.nextMoveButton);
         analyzeButton = findViewById(R.id.analyzeButton);
+        moveSeekBar = findViewById(R.id.moveSeekBar);
 
         // Get move history from intent - with extra logging
         moveHistory = getIntent().getStringArrayListExtra("MOVE_HISTORY");
@@ -76,6 +94,7 @@ public class GameAnalysisActivity extends AppCompatActivity {
             prevButton.setOnClickListener(v -> showPreviousMove());
             nextButton.setOnClickListener(v -> showNextMove());
             analyzeButton.setOnClickListener(v -> analyzeCurrentPosition());
+            setupScrubber();
         } catch (Exception e) {
             Log.e(TAG, "Error in onCreate", e);
             Toast.makeText(this, "Error initializing analysis: " + e.getMessage(),
@@ -129,6 +148,8 @@ public class GameAnalysisActivity extends AppCompatActivity {
             if (engine.startEngine(engineFile.getAbsolutePath())) {
                 // Set a higher skill level for analysis
                 engine.setSkillLevel(20); // Use maximum strength for analysis
+                // Batch analysis gets the larger share of the device
+                engine.applyProfile(EngineProfile.forDevice(this, EngineProfile.Use.ANALYSIS));
                 engine.newGame();
                 Log.d(TAG, "Engine initialized successfully");
             } else {
@@ -143,39 +164,36 @@ public class GameAnalysisActivity extends AppCompatActivity {
     }
 
     /**
-     * Generate FEN positions for each move in the game
+     * Generate FEN positions and board snapshots for each move in the game.
+     * Moves are replayed on the local {@link Board} model in a single pass,
+     * so even long games are ready without any engine round-trips.
      */
     private void generatePositions() {
         Log.d(TAG, "Generating positions for " + moveHistory.size() + " moves");
 
-        // Create array for all positions (initial + after each move)
+        // Create arrays for all positions (initial + after each move)
         positions = new String[moveHistory.size() + 1];
-
-        // Starting position is always the same
-        positions[0] = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
-        Log.d(TAG, "Position 0 (initial): " + positions[0]);
-
-        try {
-            // Reset engine to initial position
-            engine.newGame();
-            engine.setPositionFromMoves();
-
-            // For each move, apply it and save resulting position
-            for (int i = 0; i < moveHistory.size(); i++) {
-                // Build the list of moves up to this point
-                List<String> movesUpToNow = moveHistory.subList(0, i + 1);
-                String[] movesArray = movesUpToNow.toArray(new String[0]);
-
-                // Apply moves and get position
-                engine.setPositionFromMoves(movesArray);
-                positions[i + 1] = engine.getCurrentFEN();
-
-                Log.d(TAG, "Position " + (i+1) + " after move " + moveHistory.get(i) + ": " + positions[i+1]);
+        snapshots = new PositionSnapshot[moveHistory.size() + 1];
+
+        Board board = new Board();
+        positions[0] = board.getFEN();
+        snapshots[0] = PositionSnapshot.startPosition();
+
+        for (int i = 0; i < moveHistory.size(); i++) {
+            if (!board.makeMove(moveHistory.get(i))) {
+                Log.e(TAG, "Could not apply move " + moveHistory.get(i) + ", stopping at ply " + i);
+                moveHistory = new ArrayList<>(moveHistory.subList(0, i));
+                positions = Arrays.copyOf(positions, i + 1);
+                snapshots = Arrays.copyOf(snapshots, i + 1);
+                break;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error generating positions", e);
-            Toast.makeText(this, "Error preparing positions: " + e.getMessage(),
-                    Toast.LENGTH_LONG).show();
+            positions[i + 1] = board.getFEN();
+            snapshots[i + 1] = PositionSnapshot.fromBoardState(board.getBoardState(), board.isWhiteToMove());
+        }
+
+        frameRing.invalidateAll();
+        if (moveSeekBar != null) {
+            moveSeekBar.setMax(moveHistory.size());
         }
     }
 
@@ -193,23 +211,14 @@ public class GameAnalysisActivity extends AppCompatActivity {
         currentMoveIndex = index;
 
         try {
-            // Update the board with the FEN for this position
-            String fen = positions[index];
-            Log.d(TAG, "Setting board to FEN: " + fen);
-            boardView.updateBoardFromFen(fen);
+            // Update the board with the precomputed snapshot for this position
+            boardView.showFrame(null);
+            boardView.applySnapshot(snapshots[index]);
 
             // Update the move info
-            if (index == 0) {
-                moveInfoTextView.setText("Initial Position");
-            } else {
-                int moveNumber = (index + 1) / 2;
-                boolean isWhiteMove = (index % 2 == 1);
-                String moveText = String.format("Move %d%s: %s",
-                        moveNumber,
-                        isWhiteMove ? "" : "...",
-                        convertToAlgebraic(moveHistory.get(index - 1)));
-                moveInfoTextView.setText(moveText);
-                Log.d(TAG, "Set move text to: " + moveText);
+            showMoveInfo(index);
+            if (moveSeekBar.getProgress() != index) {
+                moveSeekBar.setProgress(index);
             }
 
             // Enable/disable navigation buttons
@@ -218,6 +227,9 @@ public class GameAnalysisActivity extends AppCompatActivity {
 
             // Clear previous analysis
             analysisTextView.setText("");
+
+            // Get the neighbouring frames ready for scrubbing
+            prerenderNeighbours(index);
         } catch (Exception e) {
             Log.e(TAG, "Error updating to position", e);
             Toast.makeText(this, "Error showing position: " + e.getMessage(),
@@ -225,6 +237,91 @@ public class GameAnalysisActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Show the "Move N: ..." label for a position
+     */
+    @SuppressLint("SetTextI18n")
+    private void showMoveInfo(int index) {
+        if (index == 0) {
+            moveInfoTextView.setText("Initial Position");
+        } else {
+            int moveNumber = (index + 1) / 2;
+            boolean isWhiteMove = (index % 2 == 1);
+            String moveText = String.format("Move %d%s: %s",
+                    moveNumber,
+                    isWhiteMove ? "" : "...",
+                    convertToAlgebraic(moveHistory.get(index - 1), snapshots[index - 1]));
+            moveInfoTextView.setText(moveText);
+        }
+    }
+
+    /**
+     * Wire the seek bar so dragging jumps straight to any ply. While the thumb moves
+     * only the board and move label change (from the precomputed snapshots, or a
+     * pre-rendered frame when one is ready); the full update runs once on release.
+     */
+    private void setupScrubber() {
+        moveSeekBar.setMax(moveHistory.size());
+        moveSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    scrubTo(progress);
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) { }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+                updateToPosition(seekBar.getProgress());
+            }
+        });
+    }
+
+    /**
+     * Lightweight position change used while the scrubber is being dragged
+     */
+    private void scrubTo(int index) {
+        if (snapshots == null || index < 0 || index >= snapshots.length) return;
+
+        currentMoveIndex = index;
+        boardView.applySnapshot(snapshots[index]);
+        boardView.showFrame(frameRing.get(index));
+        showMoveInfo(index);
+        prerenderNeighbours(index);
+    }
+
+    /**
+     * Renders frames around {@link #prerenderCenter}, nearest first, one frame per
+     * message so the UI thread is never blocked for more than a single render.
+     */
+    private final Runnable prerenderStep = new Runnable() {
+        @Override
+        public void run() {
+            int size = boardView.getWidth();
+            if (size <= 0 || snapshots == null) return;
+
+            for (int d = 1; d <= FRAME_RING_SIZE / 2; d++) {
+                for (int ply : new int[]{prerenderCenter + d, prerenderCenter - d}) {
+                    if (ply < 0 || ply >= snapshots.length || frameRing.get(ply) != null) continue;
+
+                    boardView.renderFrame(snapshots[ply], frameRing.obtain(ply, size));
+                    frameRing.markRendered(ply);
+                    uiHandler.post(this);
+                    return;
+                }
+            }
+        }
+    };
+
+    private void prerenderNeighbours(int center) {
+        prerenderCenter = center;
+        uiHandler.removeCallbacks(prerenderStep);
+        uiHandler.post(prerenderStep);
+    }
+
     /**
      * Show the previous move in the game
      */
@@ -258,10 +355,10 @@ public class GameAnalysisActivity extends AppCompatActivity {
             // Show that analysis is in progress
             analysisTextView.setText("Analyzing position... please wait");
             String currentFen = positions[currentMoveIndex];
-            Log.d(TAG, "Setting engine to analyze position: " + currentFen);
-
-            // Set up the position to analyze
-            engine.setPosition(currentFen);
+            Log.d(TAG, "Analyzing position: " + currentFen);
+            final PositionSnapshot analysedSnapshot = snapshots[currentMoveIndex];
+            // Engine scores are from the side to move; the display is from White's side
+            final int whiteSign = analysedSnapshot == null || analysedSnapshot.isWhiteToMove() ? 1 : -1;
 
             // Run analysis in a background thread
             new Thread(() -> {
@@ -271,33 +368,52 @@ public class GameAnalysisActivity extends AppCompatActivity {
                             moveHistory.get(currentMoveIndex) : "";
                     Log.d(TAG, "Actual move played: " + actualMove);
 
-                    // Run analysis
-                    engine.sendCommand("go depth 15 movetime 2000");
-
-                    // Wait for analysis and get best move
-                    String bestMove = waitForBestMove(3000);
+                    // Run analysis: the top three moves from one search, showing progress
+                    // each time the best line gets deeper
+                    int[] shownDepth = {0};
+                    List<EngineAnalysis.Line> lines = engine.analyse(currentFen,
+                            EngineAnalysis.Limits.depthAndTime(15, 2000), TOP_MOVES, update -> {
+                                EngineAnalysis.Line first = update.get(0);
+                                if (first.multipv != 1 || first.depth <= shownDepth[0]) return;
+                                shownDepth[0] = first.depth;
+                                String progress = "Analyzing position... depth " + first.depth
+                                        + ", best so far " + convertToAlgebraic(first.move(), analysedSnapshot);
+                                runOnUiThread(() -> analysisTextView.setText(progress));
+                            });
+                    if (lines.isEmpty()) {
+                        throw new IllegalStateException("The engine returned no analysis");
+                    }
+                    String bestMove = lines.get(0).move();
                     Log.d(TAG, "Best move from analysis: " + bestMove);
 
-                    // Also get the output buffer for more details
-                    List<String> outputBuffer = engine.getOutputBuffer();
-
-                    // Get evaluation score if available
-                    float evaluation = 0.0f;
-                    for (String line : outputBuffer) {
-                        if (line.contains("score cp ")) {
-                            try {
-                                int scoreIndex = line.indexOf("score cp ") + 9;
-                                int endIndex = line.indexOf(" ", scoreIndex);
-                                if (endIndex > scoreIndex) {
-                                    evaluation = Float.parseFloat(line.substring(scoreIndex, endIndex)) / 100.0f;
-                                    break;
-                                }
-                            } catch (Exception e) {
-                                // Continue if this line fails to parse
+                    // Score the move played against the best one from a single search, so
+                    // both scores come from the same depth and compare fairly. If the move
+                    // is one of the top lines that search has already been done.
+                    Float cost = null;
+                    if (!actualMove.isEmpty() && !actualMove.equals(bestMove)) {
+                        EngineAnalysis.Line best = lines.get(0);
+                        EngineAnalysis.Line played = null;
+                        for (EngineAnalysis.Line line : lines) {
+                            if (actualMove.equals(line.move())) {
+                                played = line;
+                                break;
                             }
                         }
+                        if (played == null) {
+                            Map<String, EngineAnalysis.Line> compared =
+                                    engine.evaluateMoves(currentFen, Arrays.asList(bestMove, actualMove), 1000);
+                            best = compared.get(bestMove);
+                            played = compared.get(actualMove);
+                        }
+                        if (best != null && played != null && !best.mate && !played.mate) {
+                            cost = Math.max(0, best.score - played.score) / 100.0f;
+                        }
                     }
 
+                    // Evaluation from White's point of view
+                    EngineAnalysis.Line bestLine = lines.get(0);
+                    float evaluation = bestLine.mate ? 0.0f : whiteSign * bestLine.score / 100.0f;
+
                     // Build a more detailed analysis
                     StringBuilder analysisBuilder = new StringBuilder();
 
@@ -306,7 +422,11 @@ public class GameAnalysisActivity extends AppCompatActivity {
                     analysisBuilder.append("----------------\n\n");
 
                     // Add evaluation
-                    if (evaluation > 0) {
+                    if (bestLine.mate) {
+                        boolean whiteMates = whiteSign * bestLine.score > 0;
+                        analysisBuilder.append("Evaluation: ").append(whiteMates ? "White" : "Black")
+                                .append(" mates in ").append(Math.abs(bestLine.score)).append("\n\n");
+                    } else if (evaluation > 0) {
                         analysisBuilder.append("Evaluation: +").append(String.format("%.2f", evaluation))
                                 .append(" (White advantage)\n\n");
                     } else if (evaluation < 0) {
@@ -317,15 +437,31 @@ public class GameAnalysisActivity extends AppCompatActivity {
                     }
 
                     // Best move section
-                    analysisBuilder.append("Best Move: ").append(convertToAlgebraic(bestMove)).append("\n");
+                    analysisBuilder.append("Best Move: ").append(convertToAlgebraic(bestMove, analysedSnapshot)).append("\n");
 
                     // Your move comparison
-                    analysisBuilder.append("Your move: ").append(convertToAlgebraic(actualMove)).append("\n\n");
+                    analysisBuilder.append("Your move: ").append(convertToAlgebraic(actualMove, analysedSnapshot)).append("\n\n");
+
+                    // The alternatives, with scores from White's point of view
+                    analysisBuilder.append("Top moves:\n");
+                    for (EngineAnalysis.Line line : lines) {
+                        analysisBuilder.append(line.multipv).append(". ")
+                                .append(convertToAlgebraic(line.move(), analysedSnapshot)).append(" (")
+                                .append(line.mate
+                                        ? "mate in " + Math.abs(line.score)
+                                        : String.format(Locale.US, "%+.2f", whiteSign * line.score / 100.0f))
+                                .append(")\n");
+                    }
+                    analysisBuilder.append("\n");
 
                     if (bestMove.equals(actualMove)) {
                         analysisBuilder.append("Excellent! You found the best move! 🌟\n");
                     } else {
                         analysisBuilder.append("There's a stronger move available.\n");
+                        if (cost != null) {
+                            analysisBuilder.append(String.format(Locale.US, "Your move gives up about %.2f pawns compared to %s.\n",
+                                    cost, convertToAlgebraic(bestMove, analysedSnapshot)));
+                        }
                     }
 
                     // Add positional advice based on game phase
@@ -375,8 +511,10 @@ public class GameAnalysisActivity extends AppCompatActivity {
 
     /**
      * Convert UCI format to algebraic notation
+     *
+     * @param before The position the move is played from
      */
-    private String convertToAlgebraic(String uciMove) {
+    private String convertToAlgebraic(String uciMove, PositionSnapshot before) {
         if (uciMove == null || uciMove.length() < 4) return "?";
 
         // Get source and destination squares
@@ -393,9 +531,9 @@ public class GameAnalysisActivity extends AppCompatActivity {
             int fromRow = 8 - fromRank;
             int fromCol = fromFile - 'a';
 
-            // Check if we can get the piece from the board view
-            if (boardView != null) {
-                piece = boardView.getPieceAt(fromRow, fromCol);
+            // Look the piece up in the position before the move
+            if (before != null) {
+                piece = before.pieceAt(fromRow, fromCol);
             }
 
             if (piece == 'p' || piece == 'P' || piece == ' ') {
@@ -422,42 +560,6 @@ public class GameAnalysisActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * A simple helper method to wait for best move
-     */
-    private String waitForBestMove(int timeoutMs) throws IOException {
-        long endTime = System.currentTimeMillis() + timeoutMs;
-        List<String> buffer = new ArrayList<>();
-
-        while (System.currentTimeMillis() < endTime) {
-            // Get the current output buffer from the engine
-            List<String> currentBuffer = engine.getOutputBuffer();
-            for (String line : currentBuffer) {
-                if (!buffer.contains(line)) {
-                    buffer.add(line);
-
-                    if (line.startsWith("bestmove")) {
-                        String[] parts = line.split("\\s+");
-                        if (parts.length >= 2) {
-                            return parts[1];
-                        }
-                    }
-                }
-            }
-
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
-
-        // If we timed out, try stopping the analysis
-        engine.sendCommand("stop");
-        return "none";
-    }
-
     private void loadSavedGame(long gameId) {
         GameDatabaseHelper dbHelper = new GameDatabaseHelper(this);
         GameDatabaseHelper.SavedGame savedGame = dbHelper.getGame(gameId);
@@ -482,6 +584,9 @@ public class GameAnalysisActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        uiHandler.removeCallbacks(prerenderStep);
+        boardView.showFrame(null);
+        frameRing.release();
         if (engine != null) {
             engine.stopEngine();
         }
@@ -0,0 +1,200 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule/template coach that works without the network. It turns position features
+ * and engine output (evaluation, its swing since the last call, best move,
+ * threatened pieces, game phase) into a short explanation in a few milliseconds.
+ * Used when the remote coach is unavailable or too slow.
+ */
+public class LocalCoach {
+    private static final Pattern SCORE = Pattern.compile("\\(([+-]?\\d+\\.\\d+)\\)");
+    private static final Pattern MATE = Pattern.compile("\\(mate in (-?\\d+)\\)");
+    private static final int MAX_SENTENCES = 3;
+
+    // Last evaluation from the player's point of view, to report swings
+    private Float lastEvaluation;
+
+    /**
+     * Describe an evaluation (in pawns) from the point of view of the side it belongs to
+     */
+    public static String describeEvaluation(float pawns) {
+        if (pawns > 2.0f) {
+            return "This is a winning advantage!";
+        } else if (pawns > 0.5f) {
+            return "This is a clear advantage.";
+        } else if (pawns > 0.2f) {
+            return "This is a slight advantage.";
+        } else if (pawns < -2.0f) {
+            return "The position is close to lost, so look for the toughest defence.";
+        } else if (pawns < -0.5f) {
+            return "The position is worse, so try to equalize.";
+        }
+        return "The position is balanced.";
+    }
+
+    /**
+     * Describe an evaluation (in pawns) from the player's point of view
+     */
+    private static String describeForPlayer(float pawns) {
+        if (pawns > 2.0f) {
+            return "You are winning!";
+        } else if (pawns > 0.5f) {
+            return "You have a clear advantage.";
+        } else if (pawns > 0.2f) {
+            return "You are slightly better.";
+        } else if (pawns < -2.0f) {
+            return "You are in serious trouble, so look for the toughest defence.";
+        } else if (pawns < -0.5f) {
+            return "You are worse here, so try to equalize.";
+        }
+        return "The position is balanced.";
+    }
+
+    /**
+     * Build a short explanation of the position for the player
+     *
+     * @param snapshot    the position
+     * @param features    features extracted from it
+     * @param engineLines lines from {@link StockfishManager#getTopLines}, best first; may be empty
+     * @param playerColor "white" or "black"
+     * @param gamePhase   "opening", "middlegame" or "endgame"
+     */
+    public synchronized String explain(PositionSnapshot snapshot, PositionFeatures features,
+                                       List<String> engineLines, String playerColor, String gamePhase) {
+        boolean playerWhite = !"black".equalsIgnoreCase(playerColor);
+        boolean playerToMove = snapshot.isWhiteToMove() == playerWhite;
+        List<String> sentences = new ArrayList<>();
+
+        // 1. Evaluation and how much it changed
+        String best = engineLines != null && !engineLines.isEmpty() ? engineLines.get(0) : null;
+        Matcher mate = best != null ? MATE.matcher(best) : null;
+        Matcher score = best != null ? SCORE.matcher(best) : null;
+        if (mate != null && mate.find()) {
+            int moves = Integer.parseInt(mate.group(1));
+            boolean forPlayer = (moves > 0) == playerToMove;
+            sentences.add(forPlayer
+                    ? "There is a forced mate for you in " + Math.abs(moves) + "!"
+                    : "Careful: your opponent has a forced mate in " + Math.abs(moves) + ".");
+            lastEvaluation = null;
+        } else if (score != null && score.find()) {
+            float eval = Float.parseFloat(score.group(1));
+            if (!playerToMove) eval = -eval; // scores are for the side to move
+            String text = describeForPlayer(eval);
+            if (lastEvaluation != null && Math.abs(eval - lastEvaluation) >= 1.0f) {
+                text += String.format(Locale.US, " That's a swing of %.1f pawns %s.",
+                        Math.abs(eval - lastEvaluation), eval > lastEvaluation ? "in your favour" : "against you");
+            }
+            sentences.add(text);
+            lastEvaluation = eval;
+        } else {
+            sentences.add(describeMaterial(features.getMaterialBalance(), playerWhite));
+        }
+
+        // 2. Immediate tactics: the player's loose pieces first, then the opponent's
+        String side = playerWhite ? "White " : "Black ";
+        String threat = null;
+        String chance = null;
+        for (String piece : features.getHangingPieces()) {
+            if (piece.startsWith(side)) {
+                if (threat == null) threat = "Watch out: your " + strip(piece) + " is under attack and not safely defended.";
+            } else if (chance == null) {
+                chance = "Your opponent's " + strip(piece) + " is loose. Can you win it?";
+            }
+        }
+        if (features.isInCheck(playerWhite)) {
+            sentences.add("You are in check, so deal with that first.");
+        } else if (threat != null) {
+            sentences.add(threat);
+        } else if (chance != null && playerToMove) {
+            sentences.add(chance);
+        } else if (!features.getForks().isEmpty()) {
+            sentences.add("Look out for the fork: " + features.getForks().get(0) + ".");
+        } else if (!features.getPins().isEmpty()) {
+            sentences.add("Note the pin: " + features.getPins().get(0) + ".");
+        }
+
+        // 3. The engine's suggestion, when it's the player's move
+        if (playerToMove && best != null) {
+            String move = best.split("\\s+")[0];
+            sentences.add("The engine's top choice is " + describeMove(snapshot, move) + ".");
+        }
+
+        // 4. A general tip for the phase of the game
+        sentences.add(phaseTip(features, playerWhite, gamePhase));
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sentences.size() && i < MAX_SENTENCES; i++) {
+            if (i > 0) text.append(' ');
+            text.append(sentences.get(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Forget the previous evaluation (e.g. for a new game)
+     */
+    public synchronized void reset() {
+        lastEvaluation = null;
+    }
+
+    private static String describeMaterial(int balance, boolean playerWhite) {
+        int forPlayer = playerWhite ? balance : -balance;
+        if (forPlayer == 0) return "Material is level.";
+        return forPlayer > 0
+                ? "You are up " + forPlayer + (forPlayer == 1 ? " pawn" : " pawns") + " worth of material."
+                : "You are down " + -forPlayer + (forPlayer == -1 ? " pawn" : " pawns") + " worth of material.";
+    }
+
+    private static String phaseTip(PositionFeatures features, boolean playerWhite, String gamePhase) {
+        if ("opening".equals(gamePhase) && features.getUndevelopedMinors(playerWhite) > 0) {
+            return "Keep developing your knights and bishops and get your king castled.";
+        }
+        if ("endgame".equals(gamePhase)) {
+            List<String> passed = features.getPassedPawns(playerWhite);
+            if (!passed.isEmpty()) {
+                return "Your passed pawn on " + passed.get(0) + " is a real asset, so push it with support.";
+            }
+            return "In the endgame, bring your king into play.";
+        }
+        if (features.getKingShelter(playerWhite) < 2) {
+            return "Your king has few pawns around it, so keep an eye on its safety.";
+        }
+        return "Look for a plan that improves your least active piece.";
+    }
+
+    /**
+     * "knight from g1 to f3" for a UCI move
+     */
+    private static String describeMove(PositionSnapshot snapshot, String uci) {
+        if (uci.length() < 4) return uci;
+        int col = uci.charAt(0) - 'a';
+        int row = 8 - (uci.charAt(1) - '0');
+        if (row < 0 || row > 7 || col < 0 || col > 7) return uci;
+
+        String piece;
+        switch (Character.toLowerCase(snapshot.pieceAt(row, col))) {
+            case 'p': piece = "pawn"; break;
+            case 'n': piece = "knight"; break;
+            case 'b': piece = "bishop"; break;
+            case 'r': piece = "rook"; break;
+            case 'q': piece = "queen"; break;
+            case 'k': piece = "king"; break;
+            default: return uci;
+        }
+        return piece + " from " + uci.substring(0, 2) + " to " + uci.substring(2, 4);
+    }
+
+    /**
+     * "White knight f6" -> "knight on f6"
+     */
+    private static String strip(String piece) {
+        String[] parts = piece.split(" ");
+        return parts.length == 3 ? parts[1] + " on " + parts[2] : piece;
+    }
+}
@@ -6,9 +6,12 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.PowerManager;
 import android.os.Vibrator;
 import android.os.VibrationEffect;
 //import android.speech.tts.TextToSpeech;
@@ -52,10 +55,14 @@ public class MainActivity extends AppCompatActivity {
 
     // Core components
     private StockfishManager engine;
+    private EngineProfile engineProfile;
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
     private ChessGameManager gameManager;
     private ChessBoardView boardView;
     private ChessCoachManager chessCoach;
     private SpeechRecognitionManager speechRecognitionManager;
+    // Moves and board commands are handled on the device, without the coach
+    private final VoiceCommandParser voiceCommandParser = new VoiceCommandParser();
 
     // Game state
     private String playerColorChoice;
@@ -336,7 +343,9 @@ public class MainActivity extends AppCompatActivity {
                 @Override
                 public void onClick(View v) {
                     Intent intent = new Intent(MainActivity.this, GameAnalysisActivity.class);
-                    intent.putStringArrayListExtra("MOVE_HISTORY", new ArrayList<>(algebraicMoveHistory));
+                    // The analysis screen replays the game, so it needs the UCI moves
+                    intent.putStringArrayListExtra("MOVE_HISTORY", gameManager != null ?
+                            new ArrayList<>(gameManager.getMoveHistory()) : new ArrayList<>());
                     startActivity(intent);
                 }
             });
@@ -384,18 +393,7 @@ public class MainActivity extends AppCompatActivity {
                     Log.d(TAG, "Board display updated");
 
                     // Update move history display text
-                    moveHistoryBuilder = new StringBuilder();
-                    moveNumber = 1;
-                    for (int i = 0; i < loadedMoves.size(); i++) {
-                        boolean isWhiteMove = (i % 2 == 0);
-                        if (isWhiteMove) {
-                            moveHistoryBuilder.append(moveNumber).append(". ").append(loadedMoves.get(i));
-                        } else {
-                            moveHistoryBuilder.append(" ").append(loadedMoves.get(i)).append("\n");
-                            moveNumber++;
-                        }
-                    }
-                    moveHistoryTextView.setText(moveHistoryBuilder.toString());
+                    setMoveHistoryText(loadedMoves);
                     Log.d(TAG, "Move history text updated");
 
                     // Determine whose turn it is
@@ -582,6 +580,11 @@ public class MainActivity extends AppCompatActivity {
      */
     private void setupSpeechRecognition() {
         speechRecognitionManager = new SpeechRecognitionManager(this);
+
+        // Lets the player talk over the coach
+        if (chessCoach != null) {
+            chessCoach.setSpeechRecognitionManager(speechRecognitionManager);
+        }
     }
 
     /**
@@ -676,6 +679,11 @@ public class MainActivity extends AppCompatActivity {
         // Show what was recognized
         Toast.makeText(this, "You said: " + command, Toast.LENGTH_SHORT).show();
 
+        // Moves and board commands don't need the coach
+        if (handleLocalVoiceCommand(command)) {
+            return;
+        }
+
         // Get current position and game state for context
         String currentFen = engine.getCurrentFEN();
 
@@ -693,7 +701,8 @@ public class MainActivity extends AppCompatActivity {
                             "I'm playing as " + playerColorChoice + ".\n" +
                             "I want to: " + command;
 
-            chessCoach.sendMessage(contextualPrompt, new ChessCoachCallback());
+            chessCoach.sendPositionMessage(contextualPrompt, currentFen, algebraicMoveHistory,
+                    playerColorChoice, new ChessCoachCallback());
             return;
         }
 
@@ -725,7 +734,8 @@ public class MainActivity extends AppCompatActivity {
                             "I'm playing as " + playerColorChoice + ".\n" +
                             "Please evaluate who's winning in this position and by approximately how much.";
 
-            chessCoach.sendMessage(contextualPrompt, new ChessCoachCallback());
+            chessCoach.sendPositionMessage(contextualPrompt, currentFen, algebraicMoveHistory,
+                    playerColorChoice, new ChessCoachCallback());
             return;
         }
 
@@ -742,6 +752,116 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
+    /**
+     * Play a spoken move or run a board command straight away
+     *
+     * @return false if the utterance is not a command and should go to the coach
+     */
+    private boolean handleLocalVoiceCommand(String utterance) {
+        boolean playerWhite = playerColorChoice.equalsIgnoreCase("white");
+        VoiceCommandParser.Command command = voiceCommandParser.parse(utterance,
+                boardView.getSnapshot(isPlayerTurn == playerWhite),
+                () -> isPlayerTurn ? engine.getLegalMoves() : null);
+
+        switch (command.type) {
+            case MOVE:
+                Log.d(TAG, "Voice move: " + command.move);
+                finishLocalVoiceCommand("Playing " + convertToAlgebraic(command.move) + ".");
+                executeMoveAndRespond(command.move);
+                return true;
+            case AMBIGUOUS:
+                // Finished once a move is picked or the choice is cancelled
+                showMoveChoiceDialog(command.candidates);
+                return true;
+            case UNDO:
+                String status = takeBackMove();
+                updateStatusText(status);
+                finishLocalVoiceCommand(status);
+                return true;
+            case FLIP:
+                boardView.setFlipped(!boardView.isFlipped());
+                finishLocalVoiceCommand("Board flipped.");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Replace "Listening..." once a voice command was handled without the coach.
+     * In a conversation, show what was done and listen again, since there is no
+     * coach reply whose end would start the next turn.
+     */
+    private void finishLocalVoiceCommand(String result) {
+        if (!inConversationMode) {
+            hideCoachMessage();
+            return;
+        }
+        showLoading(result);
+        new Handler().postDelayed(() -> {
+            if (!inConversationMode) return;
+            if (conversationTurns < MAX_CONVERSATION_TURNS) {
+                startVoiceRecognition();
+            } else {
+                hideCoachMessage();
+                endConversation("Thanks for the conversation!");
+            }
+        }, 1500);
+    }
+
+    /**
+     * Ask which move was meant when a spoken move matches several legal ones
+     */
+    private void showMoveChoiceDialog(List<String> moves) {
+        String[] labels = new String[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            String move = moves.get(i);
+            labels[i] = convertToAlgebraic(move) + " from " + move.substring(0, 2);
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Which move?")
+                .setItems(labels, (dialog, which) -> {
+                    // The position may have changed while the dialog was open
+                    String move = moves.get(which);
+                    if (!isPlayerTurn || !engine.getLegalMoves().contains(move)) {
+                        String status = "That move is no longer possible.";
+                        updateStatusText(status);
+                        finishLocalVoiceCommand(status);
+                        return;
+                    }
+                    finishLocalVoiceCommand("Playing " + convertToAlgebraic(move) + ".");
+                    executeMoveAndRespond(move);
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.cancel())
+                .setOnCancelListener(dialog -> finishLocalVoiceCommand("Move cancelled."))
+                .show();
+    }
+
+    /**
+     * Take back the player's last move together with the engine's reply
+     *
+     * @return the status to show the player
+     */
+    private String takeBackMove() {
+        if (!isPlayerTurn) {
+            return "Wait for the engine's move before taking back.";
+        }
+        if (gameManager.getMoveHistory().size() < 2) {
+            return "There is no move to take back.";
+        }
+
+        gameManager.undoMoves(2);
+        for (int i = 0; i < 2 && !algebraicMoveHistory.isEmpty(); i++) {
+            algebraicMoveHistory.remove(algebraicMoveHistory.size() - 1);
+        }
+        List<String> moves = gameManager.getMoveHistory();
+        lastMove = moves.isEmpty() ? "" : moves.get(moves.size() - 1);
+
+        updateBoardDisplay();
+        setMoveHistoryText(algebraicMoveHistory);
+        return "Move taken back. Your turn.";
+    }
+
     /**
      * Process a follow-up command in an ongoing conversation
      */
@@ -751,6 +871,10 @@ public class MainActivity extends AppCompatActivity {
         // Show what was recognized
         Toast.makeText(this, "You said: " + command, Toast.LENGTH_SHORT).show();
 
+        if (handleLocalVoiceCommand(command)) {
+            return;
+        }
+
         // Create a context-aware prompt for the follow-up
         String contextualPrompt =
                 "This is a follow-up question in our conversation.\n\n" +
@@ -784,6 +908,11 @@ public class MainActivity extends AppCompatActivity {
             showCoachMessage(response);
         }
 
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            showCoachMessage(partialResponse);
+        }
+
         @Override
         public void onError(String errorMessage) {
             Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_LONG).show();
@@ -864,7 +993,8 @@ public class MainActivity extends AppCompatActivity {
                             }
                         }
 
-                        chessCoach.sendMessage(context.toString(), new ChessCoachCallback());
+                        chessCoach.sendPositionMessage(context.toString(), currentFen, algebraicMoveHistory,
+                                playerColorChoice, new ChessCoachCallback());
                     }
                     break;
 
@@ -1015,6 +1145,12 @@ public class MainActivity extends AppCompatActivity {
             showCoachMessage(response);
         }
 
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            // Show the reply as it streams in
+            showCoachMessage(partialResponse);
+        }
+
         @Override
         public void onError(String errorMessage) {
             Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_LONG).show();
@@ -1070,36 +1206,39 @@ public class MainActivity extends AppCompatActivity {
      */
     private void initializeStockfishEngine(int skillLevel) {
         try {
-            // Try using the native library first
-            File engineFile = new File(getApplicationInfo().nativeLibraryDir, "libstockfish.so");
-
-            // If not found, try extracting from assets as fallback
-            if (!engineFile.exists()) {
-                Log.d(TAG, "Stockfish not found in native library dir, trying assets fallback");
-                try {
-                    engineFile = Utils.copyAssetToExecutableDir(this, "stockfish", "stockfish");
-                } catch (IOException e) {
-                    Log.e(TAG, "Failed to extract Stockfish from assets", e);
+            // Run the engine inside the app if the native bridge is available,
+            // otherwise as a separate process
+            engine = new StockfishManager();
+            boolean started = engine.startInProcessEngine();
+            if (!started) {
+                File engineFile = findEngineExecutable();
+                if (engineFile == null) {
+                    Toast.makeText(this, "Stockfish engine not found", Toast.LENGTH_LONG).show();
+                    return;
                 }
+                started = engine.startEngine(engineFile.getAbsolutePath());
             }
 
-            if (!engineFile.exists() || !engineFile.canExecute()) {
-                Toast.makeText(this, "Stockfish engine not found", Toast.LENGTH_LONG).show();
-                return;
-            }
-
-            Log.d(TAG, "Found Stockfish at: " + engineFile.getAbsolutePath() +
-                    ", can execute: " + engineFile.canExecute());
-
-            // Initialize the engine
-            engine = new StockfishManager();
-            if (engine.startEngine(engineFile.getAbsolutePath())) {
+            if (started) {
                 // Configure the engine
-                engine.setSkillLevel(skillLevel);
+                EngineStrength strength = EngineStrength.forLevel(skillLevel);
+                engine.setStrength(strength);
+                engine.setEngineListener(engineListener);
+                engineProfile = EngineProfile.forDevice(this, EngineProfile.Use.PLAY);
+                engine.applyProfile(engineProfile);
+                watchThermalStatus();
                 engine.newGame();
 
                 // Initialize game manager
                 gameManager = new ChessGameManager(engine);
+                // Thinking on the player's time would only make a limited engine stronger
+                gameManager.setPonderEnabled(strength.isFullStrength());
+                gameManager.setTimeManager(TimeManager.forStrength(strength));
+
+                // Let the coach ground its advice in a short engine search
+                if (chessCoach != null) {
+                    chessCoach.setEngine(engine);
+                }
 
                 // Set up the board based on player color
                 setupChessBoard();
@@ -1122,6 +1261,83 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Tells the player when the engine has crashed or hung, and retries the engine's
+     * move once it has been restarted
+     */
+    private final StockfishManager.EngineListener engineListener = new StockfishManager.EngineListener() {
+        @Override
+        public void onEngineFailed(EngineFailureException failure, boolean restarting) {
+            runOnUiThread(() -> updateStatusText(restarting
+                    ? "Engine stopped responding, restarting..."
+                    : "Engine stopped: " + failure.getMessage()));
+        }
+
+        @Override
+        public void onEngineRestarted() {
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                if (isPlayerTurn) {
+                    updateStatusText("Engine restarted. Your turn.");
+                } else {
+                    updateStatusText("Engine restarted. Engine thinking...");
+                    makeEngineMove();
+                }
+            });
+        }
+    };
+
+    /**
+     * Give the engine fewer threads while the device is hot, and its share back once
+     * it has cooled down. The hash keeps its size unless memory pressure changed
+     * too, since resizing it mid-game clears it.
+     */
+    private void watchThermalStatus() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || thermalListener != null) return;
+        PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (powerManager == null) return;
+
+        thermalListener = status -> {
+            EngineProfile measured = EngineProfile.forDevice(this, EngineProfile.Use.PLAY);
+            // Free memory drifting across a size step is no reason to clear the table
+            EngineProfile profile = engineProfile != null && measured.lowMemory == engineProfile.lowMemory
+                    ? measured.keepingHashOf(engineProfile) : measured;
+            if (engine == null || profile.sameAs(engineProfile)) return;
+            engineProfile = profile;
+            // The engine may be searching; don't hold up the UI waiting for it
+            StockfishManager target = engine;
+            new Thread(() -> target.applyProfile(profile), "EngineProfile").start();
+        };
+        powerManager.addThermalStatusListener(thermalListener);
+    }
+
+    /**
+     * Locates the Stockfish executable for running the engine as a process
+     *
+     * @return the executable, or null if there is none
+     */
+    private File findEngineExecutable() {
+        File engineFile = new File(getApplicationInfo().nativeLibraryDir, "libstockfish.so");
+
+        // If not found, try extracting from assets as fallback
+        if (!engineFile.exists()) {
+            Log.d(TAG, "Stockfish not found in native library dir, trying assets fallback");
+            try {
+                engineFile = Utils.copyAssetToExecutableDir(this, "stockfish", "stockfish");
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to extract Stockfish from assets", e);
+            }
+        }
+
+        if (!engineFile.exists() || !engineFile.canExecute()) {
+            return null;
+        }
+
+        Log.d(TAG, "Found Stockfish at: " + engineFile.getAbsolutePath() +
+                ", can execute: " + engineFile.canExecute());
+        return engineFile;
+    }
+
     // Handle permission request results
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
@@ -1341,7 +1557,7 @@ public class MainActivity extends AppCompatActivity {
      */
     private void makeEngineMove() {
         // Have the engine make its move
-        String engineMove = engine.getBestMove(1000);
+        String engineMove = gameManager.getEngineMove();
 
         if (engineMove != null && !engineMove.isEmpty()) {
             gameManager.makeMove(engineMove);
@@ -1367,6 +1583,15 @@ public class MainActivity extends AppCompatActivity {
 
             // Check game status (checkmate, stalemate, etc.)
             checkGameStatus();
+
+            // Let the engine think on the player's time. Started before the coach's
+            // prefetch, which would otherwise hold the engine while this waits for it.
+            gameManager.startPondering();
+
+            // And warm up the coach's advice for this position while the player thinks
+            if (chessCoach != null) {
+                chessCoach.prefetchAdvice(engine.getCurrentFEN(), algebraicMoveHistory, playerColorChoice);
+            }
         } else {
             updateStatusText("Engine couldn't find a move. Game may be over.");
         }
@@ -1377,6 +1602,11 @@ public class MainActivity extends AppCompatActivity {
      */
     private void updateBoardDisplay() {
         boardView.updateBoardFromFen(engine.getCurrentFEN());
+
+        // Advice still in flight for the previous position is no longer relevant
+        if (chessCoach != null) {
+            chessCoach.onPositionChanged();
+        }
     }
 
     /**
@@ -1465,6 +1695,26 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Rewrite the move history text from a full list of moves
+     */
+    private void setMoveHistoryText(List<String> moves) {
+        moveHistoryBuilder = new StringBuilder();
+        moveNumber = 1;
+        for (int i = 0; i < moves.size(); i++) {
+            boolean isWhiteMove = (i % 2 == 0);
+            if (isWhiteMove) {
+                moveHistoryBuilder.append(moveNumber).append(". ").append(moves.get(i));
+            } else {
+                moveHistoryBuilder.append(" ").append(moves.get(i)).append("\n");
+                moveNumber++;
+            }
+        }
+        if (moveHistoryTextView != null) {
+            moveHistoryTextView.setText(moveHistoryBuilder.toString());
+        }
+    }
+
     // Add this method to MainActivity.java
     private void startChessConversation() {
         Intent intent = new Intent(this, ChessConversationActivity.class);
@@ -1539,6 +1789,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        // The coach benchmark is only offered in debuggable builds
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        menu.findItem(R.id.action_coach_benchmark).setVisible(debuggable);
         return true;
     }
 
@@ -1554,13 +1807,39 @@ public class MainActivity extends AppCompatActivity {
             openSavedGamesScreen();
             return true;
         }
+        else if (id == R.id.action_coach_benchmark) {
+            runCoachBenchmark();
+            return true;
+        }
 
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Run the coach benchmark against the local mock server and show the report
+     */
+    private void runCoachBenchmark() {
+        Toast.makeText(this, "Running coach benchmark...", Toast.LENGTH_SHORT).show();
+        new Thread(() -> {
+            String report = new CoachBenchmark(this).run(12, 4, 10);
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                new AlertDialog.Builder(this)
+                        .setTitle("Coach Benchmark")
+                        .setMessage(report)
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        }, "CoachBenchmark").start();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (thermalListener != null) {
+            ((PowerManager) getSystemService(Context.POWER_SERVICE)).removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
         if (engine != null) {
             engine.stopEngine();
         }
@@ -1568,6 +1847,8 @@ public class MainActivity extends AppCompatActivity {
 
         // Clean up chess coach resources
         if (chessCoach != null) {
+            chessCoach.setEngine(null);
+            chessCoach.setSpeechRecognitionManager(null);
             chessCoach.shutdown();
         }
 
@@ -0,0 +1,222 @@
+package com.example.chesspedagogue;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local stand-in for the chat-completions endpoint, for exercising
+ * {@link OpenAIService} without the real API. Point the service at {@link #getUrl()}
+ * with {@link OpenAIService#setApiUrl(String)}.
+ * Supports plain and SSE-streamed replies, and injects latency and errors.
+ */
+public class MockChatServer {
+    private static final String TAG = "MockChatServer";
+    private static final String DEFAULT_REPLY =
+            "Nice move! Your pieces are developing well. Next, think about castling to keep your king safe " +
+                    "and connect your rooks.";
+
+    private final Gson gson = new Gson();
+    private final Random random = new Random();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+
+    // Behaviour, adjustable while running
+    private volatile long latencyMs = 200;      // before the first byte
+    private volatile long latencyJitterMs = 100;
+    private volatile long tokenDelayMs = 20;    // between streamed chunks
+    private volatile double errorRate = 0;      // fraction of requests answered with errorStatus
+    private volatile int errorStatus = 500;
+    private volatile String reply = DEFAULT_REPLY;
+
+    /**
+     * Start listening on a free port on the loopback interface
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) return;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections = Executors.newCachedThreadPool();
+        Thread acceptThread = new Thread(this::acceptLoop, "MockChatServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Log.d(TAG, "Listening on " + getUrl());
+    }
+
+    public synchronized void stop() {
+        if (serverSocket == null) return;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing server socket", e);
+        }
+        connections.shutdownNow();
+        serverSocket = null;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/v1/chat/completions";
+    }
+
+    public void setLatency(long latencyMs, long jitterMs) {
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = jitterMs;
+    }
+
+    public void setTokenDelayMs(long tokenDelayMs) {
+        this.tokenDelayMs = tokenDelayMs;
+    }
+
+    /**
+     * Answer a fraction of requests with an HTTP error (e.g. 500 or 429)
+     */
+    public void setErrorRate(double errorRate, int status) {
+        this.errorRate = errorRate;
+        this.errorStatus = status;
+    }
+
+    public void setReply(String reply) {
+        this.reply = reply;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getErrorCount() {
+        return errorCount.get();
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            Socket socket;
+            try {
+                ServerSocket server = serverSocket;
+                if (server == null) return;
+                socket = server.accept();
+            } catch (IOException e) {
+                return; // closed
+            }
+            try {
+                connections.execute(() -> handle(socket));
+            } catch (Exception e) {
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = socket.getOutputStream();
+
+            // Request line and headers
+            String requestLine = in.readLine();
+            if (requestLine == null) return;
+            int contentLength = 0;
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                    contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+                }
+            }
+            char[] body = new char[contentLength];
+            int read = 0;
+            while (read < contentLength) {
+                int n = in.read(body, read, contentLength - read);
+                if (n < 0) break;
+                read += n;
+            }
+            requestCount.incrementAndGet();
+
+            boolean stream = false;
+            try {
+                JsonObject json = gson.fromJson(new String(body, 0, read), JsonObject.class);
+                stream = json != null && json.has("stream") && json.get("stream").getAsBoolean();
+            } catch (Exception e) {
+                Log.w(TAG, "Unparseable request body", e);
+            }
+
+            long jitter = latencyJitterMs > 0 ? (long) (random.nextDouble() * latencyJitterMs) : 0;
+            Thread.sleep(latencyMs + jitter);
+
+            if (random.nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                writeResponse(out, errorStatus, "application/json",
+                        "{\"error\":{\"message\":\"Injected error\",\"type\":\"mock\"}}");
+            } else if (stream) {
+                writeStream(out, reply);
+            } else {
+                JsonObject message = new JsonObject();
+                message.addProperty("role", "assistant");
+                message.addProperty("content", reply);
+                writeResponse(out, 200, "application/json",
+                        "{\"choices\":[{\"message\":" + gson.toJson(message) + "}]}");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.w(TAG, "Error handling request", e);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private void writeResponse(OutputStream out, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String head = String.format(Locale.US,
+                "HTTP/1.1 %d %s\r\nContent-Type: %s\r\nContent-Length: %d\r\nConnection: close\r\n\r\n",
+                status, status == 200 ? "OK" : "Error", contentType, bytes.length);
+        out.write(head.getBytes(StandardCharsets.UTF_8));
+        out.write(bytes);
+        out.flush();
+    }
+
+    /**
+     * Send the reply word by word as server-sent events, ending with [DONE]
+     */
+    private void writeStream(OutputStream out, String text) throws IOException, InterruptedException {
+        out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\n" +
+                "Cache-Control: no-cache\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        String[] words = text.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            JsonObject delta = new JsonObject();
+            delta.addProperty("content", i == 0 ? words[i] : " " + words[i]);
+            String chunk = "{\"choices\":[{\"delta\":" + gson.toJson(delta) + "}]}";
+            out.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            if (tokenDelayMs > 0) Thread.sleep(tokenDelayMs);
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing to do
+        }
+    }
+}
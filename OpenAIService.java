@@ -1,84 +1,125 @@
 package com.example.chesspedagogue;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
-import okhttp3.ConnectionPool;
-import okhttp3.OkHttpClient;
+import okhttp3.Call;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.MediaType;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 
 /**
  * Enhanced service for communicating with OpenAI API
- * Now with improved context tracking and conversation continuity
+ * Now with improved context tracking and conversation continuity.
+ * Safe to call from several threads: the conversation state is guarded by the
+ * instance lock, which is never held during network calls.
  */
 public class OpenAIService {
     private static final String TAG = "OpenAIService";
-    private static final String API_URL = "https://api.openai.com/v1/chat/completions";
+    private static final String DEFAULT_API_URL = "https://api.openai.com/v1/chat/completions";
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
     private static OpenAIService instance;
-    private final OkHttpClient client;
+    private final CoachHttpClient httpClient;
     private final Gson gson;
     private String apiKey;
+    private volatile String apiUrl = DEFAULT_API_URL;
+    private volatile boolean responseCacheEnabled = true;
 
     // Model to use - can be changed based on your preference
     private String model = "gpt-4-turbo-preview";
 
-    // Chess context for continuity in conversations
-    private final List<Message> conversationHistory = new ArrayList<>();
-    private static final int MAX_CONVERSATION_LENGTH = 10;
+    // Chess context for continuity in conversations. Older turns are summarized
+    // once the history passes the token budget.
+    private static final int HISTORY_TOKEN_BUDGET = 1500;
+    private final ConversationMemory memory = new ConversationMemory(HISTORY_TOKEN_BUDGET);
 
     // Enhanced context tracking
-    private Map<String, Object> playerContext = new HashMap<>();
-    private List<String> conceptsExplained = new ArrayList<>();
-    private List<String> playerMistakes = new ArrayList<>();
-    private String currentFEN = "";
-    private String playerColor = "white";
-
-    private OpenAIService() {
-        // Configure OkHttpClient with timeouts
-        client = new OkHttpClient.Builder()
-                .connectionPool(new ConnectionPool(5, 30, TimeUnit.SECONDS))
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
-
-        gson = new GsonBuilder().create();
+    // Rebuilt lazily, at most once per request
+    private final CoachPromptBuilder promptBuilder = new CoachPromptBuilder();
+    // The position of the latest advice or evaluation the player asked for; chat
+    // messages carry no position of their own and are taken to be about this one
+    private CoachPromptBuilder.PositionContext currentPosition;
+
+    // Spots the concepts a reply explains in one pass, while it streams in
+    private final ConceptMatcher conceptMatcher = ConceptMatcher.chessConcepts();
+
+    // Replies to position-based prompts, so repeated questions skip the API
+    private static final int RESPONSE_CACHE_SIZE = 200;
+    private static final long RESPONSE_CACHE_TTL_MS = TimeUnit.DAYS.toMillis(7);
+    private final CoachResponseCache responseCache =
+            new CoachResponseCache(RESPONSE_CACHE_SIZE, RESPONSE_CACHE_TTL_MS);
+
+    // Speculative requests in flight, by cache key; a real request for the same
+    // key waits for the speculative one instead of asking again
+    private static final long PREFETCH_WAIT_SECONDS = 30;
+    private final Map<String, CompletableFuture<String>> prefetches = new ConcurrentHashMap<>();
+
+    // Identical requests in flight at the same time (double taps, voice and button) share one call
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    // Time allowed for a whole request, retries included, when the caller doesn't
+    // give one: the player is waiting for interactive ones, nobody is waiting for
+    // speculative ones yet
+    public static final long INTERACTIVE_DEADLINE_MS = 20000;
+    public static final long SPECULATIVE_DEADLINE_MS = 45000;
+
+    // Streamed text is reported when a sentence completes, or at most this often
+    // in between, rather than copied out on every delta
+    private static final long PARTIAL_INTERVAL_MS = 150;
 
-        // Initialize conversation with system message defining the coach's role
-        initializeSystemMessage();
+    /**
+     * Receives the text of a streamed response as it grows.
+     * Called on the thread that sent the message.
+     */
+    public interface StreamListener {
+        void onPartialResponse(String textSoFar);
+
+        /**
+         * Called with the HTTP call before it executes, so the caller can cancel it
+         */
+        default void onCallStarted(Call call) { }
+
+        /**
+         * Called if the request failed; the returned text is then an apology, not a reply
+         */
+        default void onFailure(String userMessage) { }
+
+        /**
+         * True once the caller has given up on the request; only then is a failed
+         * call reported as cancelled rather than as an error (e.g. the deadline)
+         */
+        default boolean isCancelled() {
+            return false;
+        }
     }
 
     /**
-     * Initialize or reset the system message with the base coach personality
+     * A service with its own conversation, prompt context and cache, sharing nothing
+     * with {@link #getInstance()}; for tools such as {@link CoachBenchmark}
      */
-    private void initializeSystemMessage() {
-        conversationHistory.clear();
+    OpenAIService() {
+        httpClient = new CoachHttpClient();
 
-        Message systemMessage = new Message("system",
-                "You are an encouraging and patient chess coach named Coach Tal. " +
-                        "You provide clear, concise advice about chess positions and strategies " +
-                        "in an accessible way. Tailor your advice to beginners and intermediate players. " +
-                        "Use simple language and explain chess concepts briefly. " +
-                        "Be encouraging even when pointing out mistakes. " +
-                        "Keep responses under 3 sentences when possible.");
-
-        conversationHistory.add(systemMessage);
+        gson = new GsonBuilder().create();
     }
 
     public static synchronized OpenAIService getInstance() {
@@ -96,277 +137,576 @@ public class OpenAIService {
         this.model = model;
     }
 
+    /**
+     * Send requests to another chat-completions endpoint (e.g. {@link MockChatServer});
+     * null restores the OpenAI API
+     */
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl != null ? apiUrl : DEFAULT_API_URL;
+    }
+
+    /**
+     * Turn the response cache off, e.g. so benchmark replies are not stored
+     */
+    public void setResponseCacheEnabled(boolean enabled) {
+        this.responseCacheEnabled = enabled;
+    }
+
+    /**
+     * Persist the response cache in the given directory (usually the app cache dir)
+     */
+    public void setCacheDirectory(File dir) {
+        responseCache.setDirectory(dir);
+    }
+
     /**
      * Update the context with new information about the player or game
      */
-    public void updateContext(String key, Object value) {
-        playerContext.put(key, value);
-        updateSystemMessage();
+    public synchronized void updateContext(String key, Object value) {
+        promptBuilder.putContext(key, value);
     }
 
     /**
      * Record a chess concept that has been explained to avoid repetition
      */
-    public void recordConceptExplained(String concept) {
-        if (!conceptsExplained.contains(concept)) {
-            conceptsExplained.add(concept);
-            // Keep the list manageable
-            if (conceptsExplained.size() > 15) {
-                conceptsExplained.remove(0);
-            }
-            updateSystemMessage();
-        }
+    public synchronized void recordConceptExplained(String concept) {
+        promptBuilder.addConcept(concept);
+    }
+
+    /**
+     * Record several explained concepts at once
+     */
+    public synchronized void recordConceptsExplained(Collection<String> concepts) {
+        promptBuilder.addConcepts(concepts);
     }
 
     /**
      * Record a mistake pattern the player is making
      */
-    public void recordPlayerMistake(String mistakeType) {
-        playerMistakes.add(mistakeType);
-        // Keep only the 5 most recent mistakes
-        if (playerMistakes.size() > 5) {
-            playerMistakes.remove(0);
-        }
-        updateSystemMessage();
+    public synchronized void recordPlayerMistake(String mistakeType) {
+        promptBuilder.addMistake(mistakeType);
+    }
+
+    private synchronized Object getSkillLevel() {
+        return promptBuilder.getContext("skillLevel");
+    }
+
+    /**
+     * Sends a user message to the API and returns the response
+     */
+    public String sendMessage(String userMessage) {
+        return sendMessage(userMessage, null);
+    }
+
+    /**
+     * Sends a user message to the API and returns the response.
+     * When a listener is given the completion is streamed (SSE) and the listener
+     * sees the text as it arrives; the full text is still returned at the end.
+     */
+    public String sendMessage(String userMessage, StreamListener listener) {
+        return sendMessage(userMessage, listener, INTERACTIVE_DEADLINE_MS);
     }
 
     /**
-     * Update the system message with all current context
+     * Like {@link #sendMessage(String, StreamListener)}, giving up after
+     * {@code deadlineMs}, retries included
      */
-    private void updateSystemMessage() {
-        if (conversationHistory.isEmpty()) {
-            initializeSystemMessage();
-            return;
+    public String sendMessage(String userMessage, StreamListener listener, long deadlineMs) {
+        try {
+            return singleFlight.run("chat:" + userMessage,
+                    () -> complete(userMessage, null, listener, false, deadlineMs)).value;
+        } catch (IOException e) {
+            return failureReply(e, listener);
         }
+    }
 
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are Coach Tal, a patient and encouraging chess coach. ");
-        prompt.append("Your goal is to help the player improve while maintaining a warm, supportive tone. ");
+    /**
+     * Like {@link #sendMessage(String, StreamListener)}, but answers from the response
+     * cache when the same prompt kind was already asked for this position, and stores
+     * successful replies in it.
+     */
+    private String sendCachedMessage(String cacheKey, CoachPromptBuilder.PositionContext position,
+                                     String userMessage, StreamListener listener, long deadlineMs) {
+        String cached = cachedReply(cacheKey);
+        if (cached != null) {
+            Log.d(TAG, "Response cache hit for " + cacheKey);
+            recordExchange(position, userMessage, cached);
+            return cached;
+        }
 
-        // Add current position information if available
-        if (!currentFEN.isEmpty()) {
-            prompt.append("The current board position in FEN notation is: ").append(currentFEN).append(". ");
-            prompt.append("The player is playing as ").append(playerColor).append(". ");
+        String prefetched = awaitPrefetch(cacheKey);
+        if (prefetched != null) {
+            recordExchange(position, userMessage, prefetched);
+            return prefetched;
         }
 
-        // Add information about player's skill level if known
-        if (playerContext.containsKey("skillLevel")) {
-            prompt.append("The player is at a ").append(playerContext.get("skillLevel"))
-                    .append(" skill level. ");
+        try {
+            SingleFlight.Result result = singleFlight.run(cacheKey,
+                    () -> complete(userMessage, position, listener, false, deadlineMs));
+            if (result.leader) {
+                cacheReply(cacheKey, result.value);
+            }
+            return result.value;
+        } catch (IOException e) {
+            return failureReply(e, listener);
         }
+    }
 
-        // Add information about player's recent struggles
-        if (!playerMistakes.isEmpty()) {
-            prompt.append("The player has recently struggled with: ");
-            prompt.append(String.join(", ", playerMistakes));
-            prompt.append(". Be attentive to these areas without being repetitive. ");
+    /**
+     * The text to show for a failed request; tells the listener it failed
+     */
+    private String failureReply(IOException e, StreamListener listener) {
+        String reply;
+        if (e instanceof CoachApiException) {
+            reply = ((CoachApiException) e).userMessage;
+        } else if (e instanceof CoachHttpClient.CallCancelledException) {
+            // Superseded by a newer request; nobody will see this reply
+            Log.d(TAG, "Request cancelled");
+            reply = "";
+        } else {
+            Log.e(TAG, "Error sending message to OpenAI", e);
+            reply = "Sorry, there was a problem communicating with the chess coach. Please check your internet connection.";
         }
+        if (listener != null) {
+            listener.onFailure(reply);
+        }
+        return reply;
+    }
 
-        // Add information about what's been covered
-        if (!conceptsExplained.isEmpty()) {
-            prompt.append("You've already explained these concepts: ");
-            prompt.append(String.join(", ", conceptsExplained));
-            prompt.append(". You can reference them but avoid re-explaining unless asked. ");
+    private String cachedReply(String cacheKey) {
+        return responseCacheEnabled ? responseCache.get(cacheKey) : null;
+    }
+
+    private void cacheReply(String cacheKey, String reply) {
+        if (responseCacheEnabled) {
+            responseCache.put(cacheKey, reply);
         }
+    }
 
-        // Add any other context keys
-        for (Map.Entry<String, Object> entry : playerContext.entrySet()) {
-            if (!entry.getKey().equals("skillLevel")) { // Already handled above
-                prompt.append(entry.getKey()).append(": ").append(entry.getValue()).append(". ");
-            }
+    /**
+     * Add a question and an already known reply to the history, so follow-up
+     * questions have context
+     */
+    private synchronized void recordExchange(CoachPromptBuilder.PositionContext position,
+                                             String userMessage, String reply) {
+        currentPosition = position;
+        memory.addReply(memory.addUser(userMessage), reply);
+    }
+
+    /**
+     * Wait for a speculative request for the same key, if one is running
+     *
+     * @return its reply, or null if there is none or it failed
+     */
+    private String awaitPrefetch(String cacheKey) {
+        CompletableFuture<String> pending = prefetches.get(cacheKey);
+        if (pending == null) return null;
+
+        Log.d(TAG, "Joining speculative request for " + cacheKey);
+        try {
+            return pending.get(PREFETCH_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            Log.w(TAG, "Speculative request could not be used", e);
+            return null;
         }
+    }
+
+    /**
+     * Ask the API for a prompt ahead of time and store the reply in the response
+     * cache only. Nothing is added to the conversation history until the player
+     * actually asks, which then hits the cache (or joins this request).
+     */
+    private void prefetch(String cacheKey, CoachPromptBuilder.PositionContext position,
+                          String userMessage, StreamListener listener, long deadlineMs) {
+        if (cachedReply(cacheKey) != null) return;
 
-        // Update the first message which should be the system message
-        conversationHistory.set(0, new Message("system", prompt.toString()));
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (prefetches.putIfAbsent(cacheKey, future) != null) return;
+        try {
+            String reply = complete(userMessage, position, listener, true, deadlineMs);
+            cacheReply(cacheKey, reply);
+            future.complete(reply);
+            Log.d(TAG, "Prefetched response for " + cacheKey);
+        } catch (IOException e) {
+            Log.d(TAG, "Speculative request failed or was cancelled: " + e.getMessage());
+            future.complete(null);
+        } finally {
+            prefetches.remove(cacheKey, future);
+        }
     }
 
     /**
-     * Sends a user message to the API and returns the response
+     * Send a user message and return the assistant reply, recording both in the history
+     *
+     * @param position the position the message is about, or null for the current one
+     * @param speculative if true, the exchange is not recorded and the reply is not streamed
+     * @param deadlineMs  time allowed for the whole request, retries included
+     * @throws CoachApiException if the API answered but could not give a usable reply
+     * @throws IOException on network failure
      */
-    public String sendMessage(String userMessage) {
+    private String complete(String userMessage, CoachPromptBuilder.PositionContext position,
+                            StreamListener listener, boolean speculative, long deadlineMs)
+            throws IOException {
         if (apiKey == null || apiKey.isEmpty()) {
             Log.e(TAG, "API key not set");
-            return "Error: API key not configured.";
+            throw new CoachApiException("Error: API key not configured.");
         }
 
-        try {
-            // Add the user message to the conversation history
-            conversationHistory.add(new Message("user", userMessage));
-
-            // Trim conversation if it gets too long
-            if (conversationHistory.size() > MAX_CONVERSATION_LENGTH + 1) { // +1 for system message
-                conversationHistory.subList(1, 2).clear(); // Remove oldest user/assistant pair
+        // Build the request under the lock; the network call happens outside it
+        ConversationMemory.Turn userTurn = null;
+        String requestJson;
+        boolean stream = listener != null && !speculative;
+        synchronized (this) {
+            List<Message> messages;
+            if (speculative) {
+                // Send the question without committing it to the history
+                messages = buildMessages(position != null ? position : currentPosition);
+                messages.add(new Message("user", userMessage));
+            } else {
+                if (position != null) {
+                    currentPosition = position;
+                }
+                // Add the user message to the conversation history
+                userTurn = memory.addUser(userMessage);
+                messages = buildMessages(currentPosition);
             }
 
             // Create the API request
-            ChatRequest chatRequest = new ChatRequest(model, conversationHistory, 150);
-            String requestJson = gson.toJson(chatRequest);
-
-            RequestBody body = RequestBody.create(requestJson, JSON);
-            Request request = new Request.Builder()
-                    .url(API_URL)
-                    .addHeader("Authorization", "Bearer " + apiKey)
-                    .addHeader("Content-Type", "application/json")
-                    .post(body)
-                    .build();
-
-            // Execute the request
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful()) {
-                if (response.body() != null) {
-                    Log.e(TAG, "API Error: " + response.body().string());
-                }
-                return "Sorry, I had trouble connecting to my chess brain. Please try again.";
+            ChatRequest chatRequest = new ChatRequest(model, messages, 150);
+            if (stream) {
+                chatRequest.stream = true;
             }
+            requestJson = gson.toJson(chatRequest);
+        }
 
-            ResponseBody responseBody = response.body();
-            if (responseBody == null) {
-                return "Sorry, I received an empty response. Please try again.";
-            }
+        RequestBody body = RequestBody.create(requestJson, JSON);
+        Request request = new Request.Builder()
+                .url(apiUrl)
+                .addHeader("Authorization", "Bearer " + apiKey)
+                .addHeader("Content-Type", "application/json")
+                .post(body)
+                .build();
 
-            // Parse the response
-            String responseJson = responseBody.string();
-            ChatResponse chatResponse = gson.fromJson(responseJson, ChatResponse.class);
+        // Each retry is a new call. A call can also be cancelled by its timeout, so only
+        // the listener can tell whether the caller gave up.
+        CoachHttpClient.CallListener callListener = new CoachHttpClient.CallListener() {
+            @Override
+            public void onCallStarted(Call call) {
+                if (listener != null) {
+                    listener.onCallStarted(call);
+                }
+            }
 
-            if (chatResponse != null && chatResponse.choices != null && !chatResponse.choices.isEmpty()) {
-                String assistantResponse = chatResponse.choices.get(0).message.content;
+            @Override
+            public boolean isCancelled() {
+                return listener != null && listener.isCancelled();
+            }
+        };
 
-                // Add the assistant's response to the conversation history
-                conversationHistory.add(new Message("assistant", assistantResponse));
+        // Execute the request
+        String assistantResponse;
+        ConceptMatcher.Scan concepts = conceptMatcher.newScan();
+        try (Response response = httpClient.execute(request, deadlineMs, callListener)) {
+            ResponseBody responseBody = response.body();
+            if (!response.isSuccessful()) {
+                // Only peek at the error body: it is for the log, and may be large or truncated
+                Log.e(TAG, "API Error " + response.code() + ": " + response.peekBody(2048).string());
+                throw new CoachApiException(response.code() == 429
+                        ? "I'm getting a lot of questions right now. Please try again in a moment."
+                        : "Sorry, I had trouble connecting to my chess brain. Please try again.");
+            }
 
-                // Check for concepts explained
-                checkForConceptsExplained(assistantResponse);
+            if (responseBody == null) {
+                throw new CoachApiException("Sorry, I received an empty response. Please try again.");
+            }
 
-                return assistantResponse;
+            if (stream) {
+                assistantResponse = readStreamedResponse(responseBody.source(), listener, concepts);
             } else {
-                return "Sorry, I couldn't generate a response. Please try again.";
+                assistantResponse = readResponse(responseBody.string());
+                if (assistantResponse != null) concepts.feed(assistantResponse);
             }
 
+            if (assistantResponse == null || assistantResponse.isEmpty()) {
+                throw new CoachApiException("Sorry, I couldn't generate a response. Please try again.");
+            }
         } catch (IOException e) {
-            Log.e(TAG, "Error sending message to OpenAI", e);
-            return "Sorry, there was a problem communicating with the chess coach. Please check your internet connection.";
+            // Failed or cancelled: don't leave an unanswered question in the history
+            if (userTurn != null) {
+                synchronized (this) {
+                    memory.remove(userTurn);
+                }
+            }
+            if (!(e instanceof CoachHttpClient.CallCancelledException) && callListener.isCancelled()) {
+                throw new CoachHttpClient.CallCancelledException();
+            }
+            // Anything else, including the deadline passing mid-stream, is a failure to report
+            throw e;
+        }
+        if (speculative) {
+            return assistantResponse;
+        }
+
+        synchronized (this) {
+            // Add the assistant's response right after the question it answers
+            memory.addReply(userTurn, assistantResponse);
+
+            // Concepts explained; the prompt is rebuilt once for all of them
+            promptBuilder.addConcepts(concepts.matches());
         }
+
+        return assistantResponse;
     }
 
     /**
-     * Check a response for chess concepts that should be recorded as explained
+     * Messages to send: the system prompt, the summary of older turns (if any)
+     * and the recent turns. Call with the lock held.
      */
-    private void checkForConceptsExplained(String response) {
-        String responseLower = response.toLowerCase();
-
-        // Check for common chess concepts
-        if (responseLower.contains("pin") || responseLower.contains("pinned")) {
-            recordConceptExplained("pins");
-        }
-        if (responseLower.contains("fork") || responseLower.contains("forking")) {
-            recordConceptExplained("forks");
-        }
-        if (responseLower.contains("skewer")) {
-            recordConceptExplained("skewers");
+    private List<Message> buildMessages(CoachPromptBuilder.PositionContext position) {
+        List<Message> messages = new ArrayList<>();
+        if (promptBuilder.isDirty()) {
+            Log.d(TAG, "Rebuilding system prompt");
         }
-        if (responseLower.contains("discovered") && (responseLower.contains("check") ||
-                responseLower.contains("attack"))) {
-            recordConceptExplained("discovered attacks");
+        messages.add(new Message("system", promptBuilder.build(position)));
+
+        String summary = memory.getSummary();
+        if (!summary.isEmpty()) {
+            messages.add(new Message("system", "Summary of the earlier conversation:\n" + summary));
         }
-        if (responseLower.contains("doubled") && responseLower.contains("pawn")) {
-            recordConceptExplained("doubled pawns");
+        for (ConversationMemory.Turn turn : memory.getTurns()) {
+            messages.add(new Message(turn.role, turn.getContent()));
         }
-        if (responseLower.contains("isolated") && responseLower.contains("pawn")) {
-            recordConceptExplained("isolated pawns");
+        Log.d(TAG, "Request history ~" + memory.estimatedTokens() + " tokens in "
+                + memory.getTurns().size() + " turns");
+        return messages;
+    }
+
+    /**
+     * Parse a complete (non-streamed) chat completion
+     *
+     * @throws CoachApiException if the body is not valid JSON
+     */
+    private String readResponse(String responseJson) throws CoachApiException {
+        ChatResponse chatResponse = parse(responseJson, ChatResponse.class);
+        if (chatResponse != null && chatResponse.choices != null && !chatResponse.choices.isEmpty()
+                && chatResponse.choices.get(0).message != null) {
+            return chatResponse.choices.get(0).message.content;
         }
-        if (responseLower.contains("castl")) {
-            recordConceptExplained("castling");
+        return null;
+    }
+
+    /**
+     * Read a server-sent event stream of completion chunks line by line. Each
+     * delta is fed to the concept scan, so the full text is never rescanned.
+     * The accumulated text goes to the listener for the first delta, whenever a
+     * sentence completes and otherwise every {@link #PARTIAL_INTERVAL_MS}; the
+     * caller gets the whole text at the end anyway.
+     *
+     * @throws CoachApiException if a chunk is not valid JSON
+     */
+    private String readStreamedResponse(BufferedSource source, StreamListener listener,
+                                        ConceptMatcher.Scan concepts) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int reportedLength = -1;
+        long reportedAt = 0;
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) continue; // blank separators, comments, event names
+
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) break;
+
+            StreamChunk chunk = parse(data, StreamChunk.class);
+            if (chunk == null || chunk.choices == null || chunk.choices.isEmpty()) continue;
+
+            StreamChunk.Delta delta = chunk.choices.get(0).delta;
+            if (delta != null && delta.content != null && !delta.content.isEmpty()) {
+                text.append(delta.content);
+                concepts.feed(delta.content);
+
+                long now = SystemClock.elapsedRealtime();
+                if (reportedLength < 0 || endsSentenceAfter(text, reportedLength)
+                        || now - reportedAt >= PARTIAL_INTERVAL_MS) {
+                    listener.onPartialResponse(text.toString());
+                    reportedLength = text.length();
+                    reportedAt = now;
+                }
+            }
         }
-        if (responseLower.contains("develop") &&
-                (responseLower.contains("piece") || responseLower.contains("knight") ||
-                        responseLower.contains("bishop"))) {
-            recordConceptExplained("development");
+        return text.toString();
+    }
+
+    /**
+     * True if a sentence ends (punctuation followed by whitespace) in the text after {@code from}
+     */
+    private static boolean endsSentenceAfter(CharSequence text, int from) {
+        for (int i = Math.max(from - 1, 0); i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?' || c == '\n')
+                    && Character.isWhitespace(text.charAt(i + 1))) {
+                return true;
+            }
         }
-        if (responseLower.contains("center") || responseLower.contains("central")) {
-            recordConceptExplained("center control");
+        return false;
+    }
+
+    /**
+     * Parse an API body, turning malformed JSON into a failure the caller reports
+     * (and cleans up after) like any other bad reply
+     */
+    private <T> T parse(String json, Class<T> type) throws CoachApiException {
+        try {
+            return gson.fromJson(json, type);
+        } catch (JsonParseException e) {
+            Log.e(TAG, "Malformed API response", e);
+            throw new CoachApiException("Sorry, I received a garbled response. Please try again.", e);
         }
-        // Add more concept detection as needed
     }
 
     /**
      * Generate chess advice based on the current position
      */
     public String generateChessAdvice(String fen, String lastMove, String playerColor) {
-        this.currentFEN = fen;
-        this.playerColor = playerColor;
+        return generateChessAdvice(fen, lastMove, playerColor, null);
+    }
+
+    /**
+     * Generate chess advice based on the current position, streaming it to the listener
+     */
+    public String generateChessAdvice(String fen, String lastMove, String playerColor,
+                                      StreamListener listener) {
+        return generateChessAdvice(fen, lastMove, playerColor, listener, INTERACTIVE_DEADLINE_MS);
+    }
 
-        String prompt = "The current chess position in FEN notation is: " + fen + ". ";
+    /**
+     * Generate chess advice, streaming it to the listener and giving up after {@code deadlineMs}
+     */
+    public String generateChessAdvice(String fen, String lastMove, String playerColor,
+                                      StreamListener listener, long deadlineMs) {
+        // The position and colour travel in the system prompt, not in every question
+        CoachPromptBuilder.PositionContext position = new CoachPromptBuilder.PositionContext(fen, playerColor);
 
+        String prompt = "";
         if (lastMove != null && !lastMove.isEmpty()) {
             prompt += "The last move was " + lastMove + ". ";
         }
-
-        prompt += "I'm playing as " + playerColor + ". ";
         prompt += "Please give me brief advice about my position and what I should be focusing on.";
 
-        return sendMessage(prompt);
+        String cacheKey = CoachResponseCache.key(fen, playerColor,
+                "advice:" + (lastMove == null ? "" : lastMove), getSkillLevel());
+        return sendCachedMessage(cacheKey, position, prompt, listener, deadlineMs);
     }
 
     /**
      * Generate enhanced chess advice with full game context
      */
     public String generateEnhancedChessAdvice(String fen, List<String> moveHistory, String playerColor) {
-        this.currentFEN = fen;
-        this.playerColor = playerColor;
+        return generateEnhancedChessAdvice(fen, moveHistory, playerColor, null);
+    }
 
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("I'm analyzing a chess game in progress.\n\n");
-        prompt.append("Current position (FEN): ").append(fen).append("\n\n");
-
-        // Add move history with proper formatting
-        if (moveHistory != null && !moveHistory.isEmpty()) {
-            prompt.append("Game moves so far:\n");
-            int moveNum = 1;
-            for (int i = 0; i < moveHistory.size(); i += 2) {
-                prompt.append(moveNum).append(". ");
-                prompt.append(moveHistory.get(i));
-                if (i + 1 < moveHistory.size()) {
-                    prompt.append(" ").append(moveHistory.get(i + 1));
-                }
-                prompt.append("\n");
-                moveNum++;
-            }
-        }
+    /**
+     * Generate enhanced chess advice with full game context, streaming it to the listener
+     */
+    public String generateEnhancedChessAdvice(String fen, List<String> moveHistory, String playerColor,
+                                              StreamListener listener) {
+        return generateEnhancedChessAdvice(new CoachPromptBuilder.PositionContext(fen, playerColor),
+                moveHistory, listener, INTERACTIVE_DEADLINE_MS);
+    }
+
+    /**
+     * Generate enhanced chess advice for a position described by the caller, e.g.
+     * with board facts and engine lines; they go into this request's prompt only
+     *
+     * @param deadlineMs time allowed for the request, retries included
+     */
+    public String generateEnhancedChessAdvice(CoachPromptBuilder.PositionContext position,
+                                              List<String> moveHistory, StreamListener listener,
+                                              long deadlineMs) {
+        return sendCachedMessage(enhancedAdviceKey(position.fen, position.playerColor), position,
+                enhancedAdvicePrompt(moveHistory), listener, deadlineMs);
+    }
+
+    /**
+     * Fetch enhanced advice for a position ahead of time, without adding anything
+     * to the conversation. A later {@link #generateEnhancedChessAdvice} for the
+     * same position gets the reply from the cache, or waits for this request.
+     *
+     * @param listener   only used for {@link StreamListener#onCallStarted}, to allow cancelling
+     * @param deadlineMs time allowed for the request, retries included
+     */
+    public void prefetchEnhancedChessAdvice(CoachPromptBuilder.PositionContext position,
+                                            List<String> moveHistory, StreamListener listener,
+                                            long deadlineMs) {
+        prefetch(enhancedAdviceKey(position.fen, position.playerColor), position,
+                enhancedAdvicePrompt(moveHistory), listener, deadlineMs);
+    }
+
+    /**
+     * True if enhanced advice for the position is cached or being fetched
+     */
+    public boolean hasEnhancedChessAdvice(String fen, String playerColor) {
+        String cacheKey = enhancedAdviceKey(fen, playerColor);
+        return prefetches.containsKey(cacheKey) || cachedReply(cacheKey) != null;
+    }
 
-        prompt.append("\nI'm playing as ").append(playerColor);
-        prompt.append(".\n\nPlease analyze my position and suggest what I should focus on next. Consider the opening principles, piece development, pawn structure, tactical opportunities, and my overall strategic direction.");
+    private String enhancedAdviceKey(String fen, String playerColor) {
+        return CoachResponseCache.key(fen, playerColor, "enhanced", getSkillLevel());
+    }
 
-        return sendMessage(prompt.toString());
+    private static String enhancedAdvicePrompt(List<String> moveHistory) {
+        StringBuilder prompt = new StringBuilder();
+        String moves = CoachPromptBuilder.compactMoves(moveHistory);
+        if (!moves.isEmpty()) {
+            prompt.append("Moves: ").append(moves).append("\n");
+        }
+        prompt.append("Please analyze my position and suggest what I should focus on next: " +
+                "opening principles, development, pawn structure, tactics and my overall plan.");
+        return prompt.toString();
     }
 
     /**
      * Evaluate a specific move
      */
     public String evaluateMove(String fen, String move, String playerColor) {
-        this.currentFEN = fen;
-        this.playerColor = playerColor;
+        CoachPromptBuilder.PositionContext position = new CoachPromptBuilder.PositionContext(fen, playerColor);
 
-        String prompt = "In this chess position: " + fen + ", ";
-        prompt += "I'm playing as " + playerColor + " and considering the move " + move + ". ";
+        String prompt = "I'm considering the move " + move + ". ";
         prompt += "Is this a good move? Why or why not? Please be concise.";
 
-        return sendMessage(prompt);
+        String cacheKey = CoachResponseCache.key(fen, playerColor, "evaluate:" + move, getSkillLevel());
+        return sendCachedMessage(cacheKey, position, prompt, null, INTERACTIVE_DEADLINE_MS);
     }
 
     /**
      * Reset the conversation history, keeping only the system message
      */
-    public void resetConversation() {
-        Message systemMessage = conversationHistory.isEmpty() ?
-                new Message("system", "") : conversationHistory.get(0);
-
-        conversationHistory.clear();
-        conversationHistory.add(systemMessage);
+    public synchronized void resetConversation() {
+        memory.clear();
 
         // Don't reset context tracking - we want to remember concepts explained
         // across conversation resets
     }
 
+    /**
+     * The API answered but without a usable reply; carries the text to show the user
+     */
+    private static class CoachApiException extends IOException {
+        final String userMessage;
+
+        CoachApiException(String userMessage) {
+            super(userMessage);
+            this.userMessage = userMessage;
+        }
+
+        CoachApiException(String userMessage, Throwable cause) {
+            super(userMessage, cause);
+            this.userMessage = userMessage;
+        }
+    }
+
     // Request and response classes for OpenAI API
     private static class Message {
         @SerializedName("role")
@@ -391,6 +731,10 @@ public class OpenAIService {
         @SerializedName("max_tokens")
         int maxTokens;
 
+        // Left null (and so omitted from the JSON) unless streaming
+        @SerializedName("stream")
+        Boolean stream;
+
         public ChatRequest(String model, List<Message> messages, int maxTokens) {
             this.model = model;
             this.messages = messages;
@@ -398,19 +742,19 @@ public class OpenAIService {
         }
     }
 
+    private static class StreamChunk {
+        @SerializedName("choices")
+        List<Choice> choices;
 
-    private ChatRequest createChatRequest(String userMessage) {
-        // Add the user message to the conversation history
-        conversationHistory.add(new Message("user", userMessage));
-
-        // Add a system instruction for brevity
-        // This temporary message doesn't get stored in conversation history
-        List<Message> requestMessages = new ArrayList<>(conversationHistory);
-        requestMessages.add(new Message("system",
-                "Keep your response brief and focused - ideally 2-3 sentences. Be concise but helpful."));
+        private static class Choice {
+            @SerializedName("delta")
+            Delta delta;
+        }
 
-        // Create the API request with max tokens limit
-        return new ChatRequest(model, requestMessages, 150); // Limit to ~150 tokens
+        private static class Delta {
+            @SerializedName("content")
+            String content;
+        }
     }
 
     private static class ChatResponse {
@@ -0,0 +1,439 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static facts about a position, computed locally from a {@link PositionSnapshot}:
+ * material, hanging pieces, pins, forks, king shelter and pawn structure.
+ * Cheap enough to run before every coach request, so the coach starts from
+ * concrete facts instead of guessing them from the FEN.
+ */
+public final class PositionFeatures {
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+    private static final String[] SIDE_NAMES = {"White", "Black"};
+
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] ORTHOGONAL = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] DIAGONAL = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    private final PositionSnapshot position;
+
+    // Per side (WHITE/BLACK): how often each square is attacked, and by how cheap a piece
+    private final int[][] attackCount = new int[2][64];
+    private final int[][] cheapestAttacker = new int[2][64];
+
+    private final int[] material = new int[2];
+    private final int[] kingShelter = new int[2];
+    private final int[] pawnIslands = new int[2];
+    private final int[] isolatedPawns = new int[2];
+    private final int[] doubledPawns = new int[2];
+    private final int[] undevelopedMinors = new int[2];
+    private final boolean[] inCheck = new boolean[2];
+    private final List<List<String>> passedPawns = new ArrayList<>();
+    private final List<String> hanging = new ArrayList<>();
+    private final List<String> pins = new ArrayList<>();
+    private final List<String> forks = new ArrayList<>();
+
+    private PositionFeatures(PositionSnapshot position) {
+        this.position = position;
+        passedPawns.add(new ArrayList<>());
+        passedPawns.add(new ArrayList<>());
+    }
+
+    /**
+     * Extract the features of a position
+     */
+    public static PositionFeatures extract(PositionSnapshot position) {
+        PositionFeatures features = new PositionFeatures(position);
+        features.computeAttacks();
+        features.computeMaterialAndHanging();
+        features.computePins();
+        features.computeForks();
+        features.computeKingShelter();
+        features.computePawnStructure();
+        features.computeDevelopment();
+        return features;
+    }
+
+    /**
+     * Material balance in pawns from White's point of view
+     */
+    public int getMaterialBalance() {
+        return material[WHITE] - material[BLACK];
+    }
+
+    /**
+     * Material of one side in pawns, kings not counted
+     */
+    public int getMaterial(boolean white) {
+        return material[side(white)];
+    }
+
+    public int getKingShelter(boolean white) {
+        return kingShelter[side(white)];
+    }
+
+    public int getIsolatedPawns(boolean white) {
+        return isolatedPawns[side(white)];
+    }
+
+    public int getDoubledPawns(boolean white) {
+        return doubledPawns[side(white)];
+    }
+
+    public int getPawnIslands(boolean white) {
+        return pawnIslands[side(white)];
+    }
+
+    public List<String> getPassedPawns(boolean white) {
+        return passedPawns.get(side(white));
+    }
+
+    public int getUndevelopedMinors(boolean white) {
+        return undevelopedMinors[side(white)];
+    }
+
+    public boolean isInCheck(boolean white) {
+        return inCheck[side(white)];
+    }
+
+    public List<String> getHangingPieces() {
+        return hanging;
+    }
+
+    public List<String> getPins() {
+        return pins;
+    }
+
+    public List<String> getForks() {
+        return forks;
+    }
+
+    /**
+     * Compact, prompt-ready summary of the facts
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        int balance = getMaterialBalance();
+        sb.append("Material ").append(material[WHITE]).append("-").append(material[BLACK]);
+        if (balance != 0) {
+            sb.append(" (").append(balance > 0 ? "White +" : "Black +").append(Math.abs(balance)).append(")");
+        }
+        sb.append(". ");
+
+        for (int s = WHITE; s <= BLACK; s++) {
+            if (inCheck[s]) sb.append(SIDE_NAMES[s]).append(" is in check. ");
+        }
+        appendList(sb, "Hanging", hanging);
+        appendList(sb, "Pins", pins);
+        appendList(sb, "Forks", forks);
+
+        sb.append("King shelter pawns: White ").append(kingShelter[WHITE])
+                .append(", Black ").append(kingShelter[BLACK]).append(". ");
+
+        for (int s = WHITE; s <= BLACK; s++) {
+            sb.append(SIDE_NAMES[s]).append(" pawns: ").append(pawnIslands[s])
+                    .append(pawnIslands[s] == 1 ? " island" : " islands");
+            if (isolatedPawns[s] > 0) sb.append(", ").append(isolatedPawns[s]).append(" isolated");
+            if (doubledPawns[s] > 0) sb.append(", ").append(doubledPawns[s]).append(" doubled");
+            if (!passedPawns.get(s).isEmpty()) {
+                sb.append(", passed ").append(String.join(" ", passedPawns.get(s)));
+            }
+            sb.append(". ");
+        }
+        return sb.toString().trim();
+    }
+
+    private static void appendList(StringBuilder sb, String label, List<String> items) {
+        if (items.isEmpty()) return;
+        sb.append(label).append(": ").append(String.join("; ", items)).append(". ");
+    }
+
+    // --- attack maps ---
+
+    private void computeAttacks() {
+        int[] targets = new int[27];
+        for (int s = WHITE; s <= BLACK; s++) {
+            for (int sq = 0; sq < 64; sq++) cheapestAttacker[s][sq] = Integer.MAX_VALUE;
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (piece == PositionSnapshot.EMPTY) continue;
+            int s = sideOf(piece);
+            int n = attackedSquares(sq, targets);
+            for (int i = 0; i < n; i++) {
+                attackCount[s][targets[i]]++;
+                cheapestAttacker[s][targets[i]] = Math.min(cheapestAttacker[s][targets[i]], exchangeValue(piece));
+            }
+        }
+    }
+
+    /**
+     * Squares attacked by the piece on {@code from}; returns how many were written to {@code out}
+     */
+    private int attackedSquares(int from, int[] out) {
+        char piece = position.pieceAt(from);
+        int row = from >> 3, col = from & 7;
+        switch (Character.toLowerCase(piece)) {
+            case 'p': {
+                int n = 0;
+                int dr = Character.isUpperCase(piece) ? -1 : 1; // white pawns move towards rank 8 (row 0)
+                if (onBoard(row + dr, col - 1)) out[n++] = (row + dr) * 8 + col - 1;
+                if (onBoard(row + dr, col + 1)) out[n++] = (row + dr) * 8 + col + 1;
+                return n;
+            }
+            case 'n':
+                return step(row, col, KNIGHT_STEPS, out, 0);
+            case 'k':
+                return step(row, col, KING_STEPS, out, 0);
+            case 'b':
+                return slide(row, col, DIAGONAL, out, 0);
+            case 'r':
+                return slide(row, col, ORTHOGONAL, out, 0);
+            case 'q':
+                return slide(row, col, DIAGONAL, out, slide(row, col, ORTHOGONAL, out, 0));
+            default:
+                return 0;
+        }
+    }
+
+    private static int step(int row, int col, int[][] steps, int[] out, int n) {
+        for (int[] d : steps) {
+            if (onBoard(row + d[0], col + d[1])) out[n++] = (row + d[0]) * 8 + col + d[1];
+        }
+        return n;
+    }
+
+    private int slide(int row, int col, int[][] dirs, int[] out, int n) {
+        for (int[] d : dirs) {
+            int r = row + d[0], c = col + d[1];
+            while (onBoard(r, c)) {
+                out[n++] = r * 8 + c;
+                if (position.pieceAt(r, c) != PositionSnapshot.EMPTY) break;
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return n;
+    }
+
+    // --- tactics ---
+
+    private void computeMaterialAndHanging() {
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (piece == PositionSnapshot.EMPTY) continue;
+            int s = sideOf(piece), enemy = 1 - s;
+            material[s] += pawnValue(piece);
+
+            if (isKing(piece)) {
+                inCheck[s] = attackCount[enemy][sq] > 0;
+                continue;
+            }
+            // Attacked and either undefended or attacked by something cheaper
+            if (attackCount[enemy][sq] > 0
+                    && (attackCount[s][sq] == 0 || cheapestAttacker[enemy][sq] < exchangeValue(piece))) {
+                hanging.add(name(piece, sq));
+            }
+        }
+    }
+
+    /**
+     * Pieces pinned to their own king (absolute pins) or queen
+     */
+    private void computePins() {
+        for (int sq = 0; sq < 64; sq++) {
+            char target = position.pieceAt(sq);
+            char kind = Character.toLowerCase(target);
+            if (kind != 'k' && kind != 'q') continue;
+            int s = sideOf(target);
+
+            for (int[][] dirs : new int[][][]{ORTHOGONAL, DIAGONAL}) {
+                boolean diagonal = dirs == DIAGONAL;
+                for (int[] d : dirs) {
+                    int r = (sq >> 3) + d[0], c = (sq & 7) + d[1];
+                    int pinnedSq = -1;
+                    while (onBoard(r, c)) {
+                        char p = position.pieceAt(r, c);
+                        if (p != PositionSnapshot.EMPTY) {
+                            if (pinnedSq < 0) {
+                                if (sideOf(p) != s) break; // enemy piece in front: no pin
+                                pinnedSq = r * 8 + c;
+                            } else {
+                                char pk = Character.toLowerCase(p);
+                                boolean slidesHere = pk == 'q' || (diagonal ? pk == 'b' : pk == 'r');
+                                if (sideOf(p) != s && slidesHere && (kind == 'k' || pk != 'q')) {
+                                    pins.add(name(position.pieceAt(pinnedSq), pinnedSq) + " pinned to "
+                                            + pieceName(target) + " by " + name(p, r * 8 + c));
+                                }
+                                break;
+                            }
+                        }
+                        r += d[0];
+                        c += d[1];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pieces attacking two or more enemy pieces that are worth more, undefended, or the king
+     */
+    private void computeForks() {
+        int[] targets = new int[27];
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (piece == PositionSnapshot.EMPTY || isKing(piece)) continue;
+            int s = sideOf(piece), enemy = 1 - s;
+
+            List<String> victims = new ArrayList<>();
+            int n = attackedSquares(sq, targets);
+            for (int i = 0; i < n; i++) {
+                char victim = position.pieceAt(targets[i]);
+                if (victim == PositionSnapshot.EMPTY || sideOf(victim) != enemy) continue;
+                if (isKing(victim) || exchangeValue(victim) > exchangeValue(piece)
+                        || attackCount[enemy][targets[i]] == 0) {
+                    victims.add(pieceName(victim) + " " + squareName(targets[i]));
+                }
+            }
+            if (victims.size() >= 2) {
+                forks.add(name(piece, sq) + " hits " + String.join(" and ", victims));
+            }
+        }
+    }
+
+    // --- structure ---
+
+    private void computeKingShelter() {
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (!isKing(piece)) continue;
+            int s = sideOf(piece);
+            char pawn = s == WHITE ? 'P' : 'p';
+            int forward = s == WHITE ? -1 : 1;
+            int count = 0;
+            for (int dist = 1; dist <= 2; dist++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = (sq >> 3) + forward * dist, c = (sq & 7) + dc;
+                    if (onBoard(r, c) && position.pieceAt(r, c) == pawn) count++;
+                }
+            }
+            kingShelter[s] = count;
+        }
+    }
+
+    private void computePawnStructure() {
+        int[][] pawnsOnFile = new int[2][8];
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (piece == 'P') pawnsOnFile[WHITE][sq & 7]++;
+            else if (piece == 'p') pawnsOnFile[BLACK][sq & 7]++;
+        }
+
+        for (int s = WHITE; s <= BLACK; s++) {
+            boolean inIsland = false;
+            for (int f = 0; f < 8; f++) {
+                int count = pawnsOnFile[s][f];
+                if (count > 0 && !inIsland) pawnIslands[s]++;
+                inIsland = count > 0;
+                if (count > 1) doubledPawns[s] += count - 1;
+
+                boolean leftEmpty = f == 0 || pawnsOnFile[s][f - 1] == 0;
+                boolean rightEmpty = f == 7 || pawnsOnFile[s][f + 1] == 0;
+                if (count > 0 && leftEmpty && rightEmpty) isolatedPawns[s] += count;
+            }
+        }
+
+        for (int sq = 0; sq < 64; sq++) {
+            char piece = position.pieceAt(sq);
+            if (piece != 'P' && piece != 'p') continue;
+            int s = sideOf(piece);
+            char enemyPawn = s == WHITE ? 'p' : 'P';
+            int forward = s == WHITE ? -1 : 1;
+            boolean passed = true;
+            for (int r = (sq >> 3) + forward; r >= 0 && r < 8 && passed; r += forward) {
+                for (int c = Math.max(0, (sq & 7) - 1); c <= Math.min(7, (sq & 7) + 1); c++) {
+                    if (position.pieceAt(r, c) == enemyPawn) {
+                        passed = false;
+                        break;
+                    }
+                }
+            }
+            if (passed) passedPawns.get(s).add(squareName(sq));
+        }
+    }
+
+    /**
+     * Knights and bishops still on their starting squares
+     */
+    private void computeDevelopment() {
+        int[] homeCols = {1, 2, 5, 6};
+        for (int col : homeCols) {
+            char expected = col == 1 || col == 6 ? 'n' : 'b';
+            if (position.pieceAt(7, col) == Character.toUpperCase(expected)) undevelopedMinors[WHITE]++;
+            if (position.pieceAt(0, col) == expected) undevelopedMinors[BLACK]++;
+        }
+    }
+
+    // --- helpers ---
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+
+    private static int side(boolean white) {
+        return white ? WHITE : BLACK;
+    }
+
+    private static int sideOf(char piece) {
+        return Character.isUpperCase(piece) ? WHITE : BLACK;
+    }
+
+    private static boolean isKing(char piece) {
+        return piece == 'K' || piece == 'k';
+    }
+
+    /**
+     * Piece value in pawns, as counted for material
+     */
+    private static int pawnValue(char piece) {
+        switch (Character.toLowerCase(piece)) {
+            case 'p': return 1;
+            case 'n':
+            case 'b': return 3;
+            case 'r': return 5;
+            case 'q': return 9;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Value used when comparing attackers and victims; the king outranks everything
+     */
+    private static int exchangeValue(char piece) {
+        return isKing(piece) ? 100 : pawnValue(piece);
+    }
+
+    private static String pieceName(char piece) {
+        switch (Character.toLowerCase(piece)) {
+            case 'p': return "pawn";
+            case 'n': return "knight";
+            case 'b': return "bishop";
+            case 'r': return "rook";
+            case 'q': return "queen";
+            default: return "king";
+        }
+    }
+
+    private static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (8 - (sq >> 3));
+    }
+
+    private static String name(char piece, int sq) {
+        return SIDE_NAMES[sideOf(piece)] + " " + pieceName(piece) + " " + squareName(sq);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.chesspedagogue;
+
+import java.util.Arrays;
+
+/**
+ * Immutable 64-byte snapshot of the piece placement.
+ * Index 0 is a8 and index 63 is h1, matching the row/col layout used by
+ * {@link ChessBoardView} (row 0 = rank 8). Snapshots are cheap to build on a
+ * worker thread and can then be handed to the view, which only has to diff them.
+ */
+public final class PositionSnapshot {
+    public static final byte EMPTY = ' ';
+
+    private static final PositionSnapshot START = fromFen(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+    private final byte[] squares;
+    private final boolean whiteToMove;
+
+    private PositionSnapshot(byte[] squares, boolean whiteToMove) {
+        this.squares = squares;
+        this.whiteToMove = whiteToMove;
+    }
+
+    /**
+     * The standard starting position.
+     */
+    public static PositionSnapshot startPosition() {
+        return START;
+    }
+
+    /**
+     * Parse the placement (and side to move) of a FEN string in a single pass.
+     *
+     * @param fen FEN string, only the first two fields are read
+     * @return the snapshot, or null if the placement field is malformed
+     */
+    public static PositionSnapshot fromFen(String fen) {
+        if (fen == null || fen.isEmpty()) return null;
+
+        byte[] squares = new byte[64];
+        int row = 0, col = 0, i = 0;
+        int len = fen.length();
+
+        for (; i < len; i++) {
+            char ch = fen.charAt(i);
+            if (ch == ' ') break;
+            if (ch == '/') {
+                if (col != 8 || row >= 7) return null;
+                row++;
+                col = 0;
+            } else if (ch >= '1' && ch <= '8') {
+                int empty = ch - '0';
+                if (col + empty > 8 || row >= 8) return null;
+                for (int k = 0; k < empty; k++) squares[row * 8 + col++] = EMPTY;
+            } else if ("pnbrqkPNBRQK".indexOf(ch) >= 0) {
+                if (col >= 8 || row >= 8) return null;
+                squares[row * 8 + col++] = (byte) ch;
+            } else {
+                return null;
+            }
+        }
+        if (row != 7 || col != 8) return null;
+
+        // Side to move is the character right after the placement field
+        boolean white = i + 1 >= len || fen.charAt(i + 1) != 'b';
+        return new PositionSnapshot(squares, white);
+    }
+
+    /**
+     * Build a snapshot from an 8x8 char board (as used by {@link Board}).
+     */
+    public static PositionSnapshot fromBoardState(char[][] rows, boolean whiteToMove) {
+        byte[] squares = new byte[64];
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                squares[r * 8 + c] = (byte) rows[r][c];
+            }
+        }
+        return new PositionSnapshot(squares, whiteToMove);
+    }
+
+    public char pieceAt(int row, int col) {
+        return (char) squares[row * 8 + col];
+    }
+
+    public char pieceAt(int square) {
+        return (char) squares[square];
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    /**
+     * Squares (0..63) whose piece differs from the given 8x8 board.
+     *
+     * @return the changed squares in ascending order, empty if nothing changed
+     */
+    public int[] diff(char[][] current) {
+        int[] changed = new int[64];
+        int n = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (current[sq >> 3][sq & 7] != (char) squares[sq]) {
+                changed[n++] = sq;
+            }
+        }
+        return Arrays.copyOf(changed, n);
+    }
+
+    /**
+     * Squares (0..63) whose piece differs from another snapshot.
+     */
+    public int[] diff(PositionSnapshot other) {
+        int[] changed = new int[64];
+        int n = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (other == null || other.squares[sq] != squares[sq]) {
+                changed[n++] = sq;
+            }
+        }
+        return Arrays.copyOf(changed, n);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PositionSnapshot)) return false;
+        PositionSnapshot that = (PositionSnapshot) o;
+        return whiteToMove == that.whiteToMove && Arrays.equals(squares, that.squares);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(squares) + (whiteToMove ? 1 : 0);
+    }
+}
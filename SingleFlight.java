@@ -0,0 +1,79 @@
+package com.example.chesspedagogue;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces identical concurrent requests: while a request for a key is running,
+ * other callers with the same key wait for its result instead of sending their own.
+ * If the running request was cancelled, a waiting caller runs the request itself.
+ */
+public class SingleFlight {
+    private static final String TAG = "SingleFlight";
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The work being coalesced
+     */
+    public interface Request {
+        String run() throws IOException;
+    }
+
+    /**
+     * Result of {@link #run}
+     */
+    public static final class Result {
+        public final String value;
+        // False if the value came from another caller's request
+        public final boolean leader;
+
+        Result(String value, boolean leader) {
+            this.value = value;
+            this.leader = leader;
+        }
+    }
+
+    /**
+     * Run the request, or join an identical one already running
+     */
+    public Result run(String key, Request request) throws IOException {
+        while (true) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+
+            if (running == null) {
+                try {
+                    String value = request.run();
+                    future.complete(value);
+                    return new Result(value, true);
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            }
+
+            Log.d(TAG, "Joining in-flight request for " + key);
+            try {
+                return new Result(running.get(), false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for an identical request", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CoachHttpClient.CallCancelledException) {
+                    continue; // its caller gave up, but this one still wants the answer
+                }
+                if (cause instanceof IOException) throw (IOException) cause;
+                throw new IOException(cause);
+            }
+        }
+    }
+}
@@ -32,14 +32,14 @@ public class SplashActivity extends AppCompatActivity {
         strengthSeekBar.setProgress(10);  // default mid-level
         // Show initial strength value with approximate Elo
         int initialSkill = strengthSeekBar.getProgress();
-        int initialElo = 800 + initialSkill * 110;
+        int initialElo = EngineStrength.forLevel(initialSkill).elo;
         strengthValueTextView.setText("Engine Strength: ~" + initialElo + " Elo (Level " + initialSkill + ")");
 
         // Update displayed strength as the user adjusts the slider
         strengthSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                int approxElo = 800 + progress * 110;
+                int approxElo = EngineStrength.forLevel(progress).elo;
                 strengthValueTextView.setText("Engine Strength: ~" + approxElo + " Elo (Level " + progress + ")");
             }
             @Override public void onStartTrackingTouch(SeekBar seekBar) { }
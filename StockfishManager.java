@@ -10,15 +10,28 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages communication with the Stockfish chess engine using the UCI protocol.
  * Provides methods to send commands and receive responses.
+ * Methods that run a command/response exchange are synchronized, so the game and
+ * the coach can share one engine without interleaving their output.
+ * The engine can ponder on the player's time; other searches pause the ponder search
+ * and resume it afterwards, and position queries are answered from cached state.
+ * A watchdog sends the engine an "isready" every few seconds and notices when the
+ * process exits; exchanges waiting on a dead or hung engine then fail at once with
+ * {@link EngineFailureException}, and the engine is restarted with the options it had.
  */
 public class StockfishManager {
     private static final String TAG = "StockfishManager";
@@ -26,12 +39,100 @@ public class StockfishManager {
     private BufferedReader reader;
     private BufferedWriter writer;
     private Thread readerThread;
-    private final List<String> outputBuffer = new CopyOnWriteArrayList<>();
+    // Engine output; each exchange reads it from a cursor taken before sending its command
+    private final EngineOutputRing output = new EngineOutputRing(4096);
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private boolean isReady = false;
 
+    // In-process engine (JNI, see native_bridge.cpp). Stockfish has global state,
+    // so only one manager per process can use it; the others spawn a process.
+    private static final AtomicBoolean inProcessEngineTaken = new AtomicBoolean(false);
+    private volatile boolean inProcess = false;
+
+    private native boolean nativeInit();
+    private native void nativeSendCommand(String command);
+    private native void nativeQuit();
+
+    // Watchdog (see watch())
+    private static final long HEARTBEAT_INTERVAL_MS = 3000;
+    private static final long HEARTBEAT_DEADLINE_MS = 3000;
+    // Restarts allowed within the window; an engine that keeps crashing stays down
+    private static final int MAX_RESTARTS = 3;
+    private static final long RESTART_WINDOW_MS = 60000;
+
+    private String enginePath;                 // null for the in-process engine
+    private Thread watchdogThread;
+    private final Object watchdogSignal = new Object();
+    private volatile String failure;           // why the engine failed, null while it works
+    private volatile boolean stopping = false; // stopEngine was called; exits are expected
+    // isready commands sent by the watchdog; their readyok lines are not passed on
+    private final AtomicInteger pendingHeartbeats = new AtomicInteger();
+    private final AtomicLong heartbeatsAnswered = new AtomicLong();
+    private final List<Long> restartTimes = new ArrayList<>();
+    private volatile EngineListener listener;
+
+    // Options set so far, sent again after a restart
+    private final Map<String, String> options = new LinkedHashMap<>();
+    // MultiPV the engine has; analysis raises it, searches for a move put it back to 1
+    private int multiPv = 1;
+
+    /**
+     * Told when the engine fails and when it is back; called on the watchdog thread
+     */
+    public interface EngineListener {
+        /**
+         * @param restarting false if the engine stays down, because it can't be
+         *                   restarted or has failed too often
+         */
+        void onEngineFailed(EngineFailureException failure, boolean restarting);
+
+        void onEngineRestarted();
+    }
+
     // Add this field to track the current FEN
-    private String currentFEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // Volatile so the board can read it while another thread holds the engine
+    private volatile String currentFEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Position command for the game position, extended one move at a time. It is only
+    // sent right before the engine needs it, and not at all if the engine already has it.
+    private final StringBuilder positionCommand = new StringBuilder("position startpos");
+    private boolean positionSent = false;
+
+    // Legal moves of the game position, from the last perft; read without the lock
+    private volatile LegalMoves legalMoveCache;
+
+    private static final class LegalMoves {
+        final String fen;
+        final List<String> moves;
+
+        LegalMoves(String fen, List<String> moves) {
+            this.fen = fen;
+            this.moves = Collections.unmodifiableList(new ArrayList<>(moves));
+        }
+    }
+
+    // Pondering: searching the expected reply while the player thinks (see startPondering)
+    private String lastPonderMove;   // the reply expected after the engine's last move
+    private Ponder ponder;           // the ponder search in progress
+    private String ponderResult;     // its bestmove line, once it finished after a ponder hit
+
+    private static final class Ponder {
+        final String move;
+        final String position;           // position command including the expected reply
+        final String fen;                // FEN after the expected reply
+        final List<String> legalMoves;   // the player's legal moves, answered from here meanwhile
+        final int thinkTimeMs;
+        EngineOutputRing.Cursor cursor;
+        boolean hit;                     // the player made the expected reply
+
+        Ponder(String move, String position, String fen, List<String> legalMoves, int thinkTimeMs) {
+            this.move = move;
+            this.position = position;
+            this.fen = fen;
+            this.legalMoves = legalMoves;
+            this.thinkTimeMs = thinkTimeMs;
+        }
+    }
 
     /**
      * Starts the Stockfish engine process.
@@ -40,14 +141,28 @@ public class StockfishManager {
      * @return true if the engine started successfully
      */
     public boolean startEngine(String enginePath) {
-        try {
-            // Start the engine using the provided path
-            File engineFile = new File(enginePath);
-            if (!engineFile.exists() || !engineFile.canExecute()) {
-                Log.e(TAG, "Engine file does not exist or is not executable: " + enginePath);
-                return false;
-            }
+        // Start the engine using the provided path
+        File engineFile = new File(enginePath);
+        if (!engineFile.exists() || !engineFile.canExecute()) {
+            Log.e(TAG, "Engine file does not exist or is not executable: " + enginePath);
+            return false;
+        }
 
+        this.enginePath = enginePath;
+        stopping = false;
+        if (!launchProcess()) {
+            stopEngine();
+            return false;
+        }
+        startWatchdog();
+        return true;
+    }
+
+    /**
+     * Start the engine process and wait for it to enter UCI mode
+     */
+    private boolean launchProcess() {
+        try {
             ProcessBuilder builder = new ProcessBuilder(enginePath);
             builder.redirectErrorStream(true);
             process = builder.start();
@@ -57,17 +172,20 @@ public class StockfishManager {
             writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
 
             // Start reader thread
+            failure = null;
+            output.reopen();
             isRunning.set(true);
-            readerThread = new Thread(this::readOutputContinuously);
+            BufferedReader in = reader;
+            readerThread = new Thread(() -> readOutputContinuously(in), "EngineReader");
             readerThread.start();
 
             // Initialize UCI mode
+            EngineOutputRing.Cursor cursor = output.cursor();
             sendCommand("uci");
 
             // Wait for "uciok" response
-            if (!waitForResponse("uciok", 5000)) {
+            if (cursor.awaitLine("uciok", 5000) == null) {
                 Log.e(TAG, "Engine did not respond with 'uciok'");
-                stopEngine();
                 return false;
             }
 
@@ -80,27 +198,267 @@ public class StockfishManager {
 
 
     /**
-     * Continuously reads output from the engine process.
+     * Starts Stockfish inside the app process instead of as a separate executable.
+     * Commands go straight to the engine's UCI loop and every output line is pushed
+     * to {@link #handleEngineLine} as it is printed: no process spawn, no pipes.
+     *
+     * @return false if the native library or its engine entry point is missing, or
+     * the in-process engine is already in use; {@link #startEngine(String)} can be
+     * used instead
      */
-    private void readOutputContinuously() {
+    public boolean startInProcessEngine() {
+        if (!inProcessEngineTaken.compareAndSet(false, true)) {
+            Log.d(TAG, "In-process engine already in use");
+            return false;
+        }
+
         try {
-            String line;
-            while (isRunning.get() && (line = reader.readLine()) != null) {
-                Log.d(TAG, "Engine: " + line);
-                outputBuffer.add(line);
+            System.loadLibrary("my_native_lib");
+        } catch (UnsatisfiedLinkError e) {
+            Log.w(TAG, "In-process engine not available", e);
+            inProcessEngineTaken.set(false);
+            return false;
+        }
+
+        enginePath = null;
+        stopping = false;
+        inProcess = true;
+        if (!launchInProcess()) {
+            stopEngine();
+            return false;
+        }
+        Log.d(TAG, "Using the in-process engine");
+        startWatchdog();
+        return true;
+    }
 
-                // Check for readyok
-                if (line.equals("readyok")) {
-                    isReady = true;
+    /**
+     * Start the in-process engine's UCI loop and wait for it to enter UCI mode
+     */
+    private boolean launchInProcess() {
+        failure = null;
+        output.reopen();
+        isRunning.set(true);
+        if (!nativeInit()) {
+            Log.e(TAG, "In-process engine failed to start");
+            return false;
+        }
+        try {
+            EngineOutputRing.Cursor cursor = output.cursor();
+            sendCommand("uci");
+            if (cursor.awaitLine("uciok", 5000) == null) {
+                Log.e(TAG, "In-process engine did not respond with 'uciok'");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error starting in-process engine", e);
+            return false;
+        }
+    }
+
+    /**
+     * Handles one line of engine output, from the reader thread or, for the
+     * in-process engine, from native code on the engine's thread
+     */
+    @SuppressWarnings("unused") // also called from native code
+    private void handleEngineLine(String line) {
+        Log.d(TAG, "Engine: " + line);
+
+        // Check for readyok
+        if (line.equals("readyok")) {
+            isReady = true;
+            // Answers arrive in order, so whichever isready this answered, the one
+            // waiting in waitForReady still gets a readyok no earlier than its own
+            if (pendingHeartbeats.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                heartbeatsAnswered.incrementAndGet();
+                synchronized (watchdogSignal) {
+                    watchdogSignal.notifyAll();
                 }
+                return;
+            }
+        }
+        output.add(line);
+    }
+
+    /**
+     * Continuously reads output from the engine process.
+     */
+    private void readOutputContinuously(BufferedReader in) {
+        try {
+            String line;
+            while (isRunning.get() && (line = in.readLine()) != null) {
+                handleEngineLine(line);
             }
         } catch (IOException e) {
-            if (isRunning.get()) {
+            if (isRunning.get() && !stopping) {
                 Log.e(TAG, "Error reading from engine", e);
             }
         } finally {
             Log.d(TAG, "Reader thread exiting");
         }
+        // The output ended without stopEngine: the process died
+        if (in == reader && !stopping) {
+            engineFailed("Engine process exited");
+        }
+    }
+
+    private void startWatchdog() {
+        watchdogThread = new Thread(this::watch, "EngineWatchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    /**
+     * Watchdog loop: a heartbeat every few seconds while the engine works, a restart
+     * once it has failed
+     */
+    private void watch() {
+        while (!stopping) {
+            if (failure == null) {
+                synchronized (watchdogSignal) {
+                    try {
+                        watchdogSignal.wait(HEARTBEAT_INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (failure == null && !stopping) heartbeat();
+            }
+            if (failure != null && !stopping && !recover()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Check that the process is alive and answers isready within the deadline. The
+     * engine answers isready even while it searches.
+     */
+    private void heartbeat() {
+        Process current = process;
+        if (current != null && !current.isAlive()) {
+            engineFailed("Engine process exited");
+            return;
+        }
+
+        long answered = heartbeatsAnswered.get();
+        pendingHeartbeats.incrementAndGet();
+        try {
+            sendCommand("isready");
+        } catch (IOException e) {
+            pendingHeartbeats.decrementAndGet();
+            engineFailed("Could not send isready: " + e.getMessage());
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + HEARTBEAT_DEADLINE_MS;
+        synchronized (watchdogSignal) {
+            long remaining;
+            while (heartbeatsAnswered.get() == answered && failure == null && !stopping
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    watchdogSignal.wait(remaining);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+        if (heartbeatsAnswered.get() == answered) {
+            engineFailed("No answer to isready within " + HEARTBEAT_DEADLINE_MS + " ms");
+        }
+    }
+
+    /**
+     * Mark the engine as failed and wake everything waiting on it
+     */
+    private void engineFailed(String reason) {
+        synchronized (watchdogSignal) {
+            if (stopping || failure != null) return;
+            failure = reason;
+            Log.e(TAG, "Engine failed: " + reason);
+            watchdogSignal.notifyAll();
+        }
+        // Exchanges waiting for output see the failure now rather than at their timeout
+        output.close();
+    }
+
+    /**
+     * Restart the engine after a failure and give it back its options. The game
+     * position is sent again with the next search.
+     *
+     * @return false if the engine stays down
+     */
+    private boolean recover() {
+        boolean restarting = (enginePath != null || inProcess) && allowRestart();
+        EngineListener current = listener;
+        if (current != null) {
+            current.onEngineFailed(new EngineFailureException(failure), restarting);
+        }
+        if (!restarting) {
+            Log.e(TAG, "Not restarting the engine");
+            return false;
+        }
+
+        // Waits for the exchange in progress, which has been woken and fails
+        synchronized (this) {
+            if (stopping) return false;
+            Log.w(TAG, "Restarting engine after: " + failure);
+            if (inProcess) {
+                // Sends quit and waits for the engine thread, which then can start again
+                nativeQuit();
+            } else {
+                closeProcess();
+            }
+            pendingHeartbeats.set(0);
+            ponder = null;
+            ponderResult = null;
+            lastPonderMove = null;
+            positionSent = false;
+
+            multiPv = 1;
+            if (!(inProcess ? launchInProcess() : launchProcess())) {
+                failure = "Engine did not restart";
+                return true; // tried again, within the restart limit
+            }
+            try {
+                for (Map.Entry<String, String> option : options.entrySet()) {
+                    sendCommand("setoption name " + option.getKey() + " value " + option.getValue());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error restoring engine options", e);
+            }
+            if (!waitForReady(5000)) {
+                failure = "Engine not ready after restart";
+                return true;
+            }
+        }
+
+        Log.d(TAG, "Engine restarted");
+        current = listener;
+        if (current != null) {
+            current.onEngineRestarted();
+        }
+        return true;
+    }
+
+    private boolean allowRestart() {
+        long now = System.currentTimeMillis();
+        restartTimes.removeIf(time -> now - time > RESTART_WINDOW_MS);
+        if (restartTimes.size() >= MAX_RESTARTS) return false;
+        restartTimes.add(now);
+        return true;
+    }
+
+    public void setEngineListener(EngineListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * False while the engine is down after a failure
+     */
+    public boolean isHealthy() {
+        return isRunning.get() && failure == null;
     }
 
     /**
@@ -110,11 +468,19 @@ public class StockfishManager {
      * @throws IOException if an I/O error occurs
      */
     public void sendCommand(String command) throws IOException {
-        if (writer == null || !isRunning.get()) {
+        String failed = failure;
+        if (failed != null) {
+            throw new EngineFailureException(failed);
+        }
+        if (!isRunning.get() || (!inProcess && writer == null)) {
             throw new IOException("Engine not running");
         }
 
         Log.d(TAG, "Sending: " + command);
+        if (inProcess) {
+            nativeSendCommand(command);
+            return;
+        }
         writer.write(command + "\n");
         writer.flush();
     }
@@ -125,11 +491,12 @@ public class StockfishManager {
      * @param timeoutMs Timeout in milliseconds
      * @return true if the engine is ready within the timeout
      */
-    public boolean waitForReady(long timeoutMs) {
+    public synchronized boolean waitForReady(long timeoutMs) {
         isReady = false;
         try {
+            EngineOutputRing.Cursor cursor = output.cursor();
             sendCommand("isready");
-            return waitForResponse("readyok", timeoutMs);
+            return cursor.awaitLine("readyok", timeoutMs) != null;
         } catch (IOException e) {
             Log.e(TAG, "Error sending isready command", e);
             return false;
@@ -137,80 +504,250 @@ public class StockfishManager {
     }
 
     /**
-     * Waits for a specific response from the engine.
+     * Stop a search that overran its time and wait for its bestmove, so it can't be
+     * mistaken for the answer to the next search
+     */
+    private void stopSearch(EngineOutputRing.Cursor cursor) throws IOException {
+        sendCommand("stop");
+        cursor.awaitLine("bestmove", 500);
+    }
+
+    /**
+     * Gets the best move from the engine for the current position.
      *
-     * @param responsePrefix The response prefix to wait for
-     * @param timeoutMs      Timeout in milliseconds
-     * @return true if the response was received within the timeout
+     * @param thinkTimeMs Time in milliseconds for the engine to think
+     * @return The best move in UCI notation (e.g., "e2e4") or null if no move was found
      */
-    public boolean waitForResponse(String responsePrefix, long timeoutMs) {
-        long endTime = System.currentTimeMillis() + timeoutMs;
+    public synchronized String getBestMove(int thinkTimeMs) {
+        try {
+            String pondered = takePonderResult();
+            if (pondered != null) {
+                return parseBestMove(pondered);
+            }
+            return search("go movetime " + thinkTimeMs, thinkTimeMs, null);
+        } catch (IOException e) {
+            Log.e(TAG, "Error getting best move", e);
+            return null;
+        }
+    }
 
-        while (System.currentTimeMillis() < endTime) {
-            for (String line : outputBuffer) {
-                if (line.contains(responsePrefix)) {
-                    return true;
-                }
+    /**
+     * Gets the best move, thinking as long as the time manager allows. A forced move
+     * is returned without a search, and the search stops early once its best move
+     * is stable.
+     *
+     * @return The best move in UCI notation or null if no move was found
+     */
+    public synchronized String getBestMove(TimeManager timeManager) {
+        try {
+            String pondered = takePonderResult();
+            if (pondered != null) {
+                return parseBestMove(pondered);
             }
 
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
+            List<String> legal = getLegalMoves();
+            if (legal.size() == 1) {
+                Log.d(TAG, "Only one legal move: " + legal.get(0));
+                lastPonderMove = null;
+                return legal.get(0);
             }
+
+            long budget = timeManager.moveBudget(currentFEN, legal.size());
+            Log.d(TAG, "Move budget " + budget + " ms for " + legal.size() + " legal moves");
+            // With a clock the engine manages its own time
+            TimeManager.Stability stability = timeManager.hasClock() ? null : new TimeManager.Stability(budget);
+            return search(timeManager.goCommand(budget), timeManager.searchTimeout(currentFEN, budget), stability);
+        } catch (IOException e) {
+            Log.e(TAG, "Error getting best move", e);
+            return null;
         }
+    }
 
-        return false;
+    /**
+     * After a ponder hit the engine has been searching this position for a while:
+     * its bestmove line, or null if there was no ponder hit
+     */
+    private String takePonderResult() throws IOException {
+        if (ponder != null && ponder.hit) {
+            finishPonder();
+        } else if (ponder != null) {
+            stopPondering();
+        }
+        String line = ponderResult;
+        ponderResult = null;
+        if (line != null) {
+            Log.d(TAG, "Answering from the ponder search");
+        }
+        return line;
     }
 
     /**
-     * Gets the best move from the engine for the current position.
+     * Search the game position for the best move
      *
-     * @param thinkTimeMs Time in milliseconds for the engine to think
-     * @return The best move in UCI notation (e.g., "e2e4") or null if no move was found
+     * @param timeoutMs how long the search should take; a bestmove is waited for 2 seconds longer
+     * @param stability stops the search once it is stable, or null to use the full time
+     */
+    private String search(String goCommand, long timeoutMs, TimeManager.Stability stability) throws IOException {
+        setMultiPv(1);
+        sendPosition();
+        EngineOutputRing.Cursor cursor = output.cursor();
+        sendCommand(goCommand);
+
+        long endTime = System.currentTimeMillis() + timeoutMs + 2000;
+        boolean stopped = false;
+        String line;
+        while ((line = cursor.poll(endTime - System.currentTimeMillis())) != null) {
+            if (line.startsWith("bestmove")) {
+                return parseBestMove(line);
+            }
+            if (!stopped && stability != null && stability.update(line)) {
+                Log.d(TAG, "Best move is stable, stopping early");
+                sendCommand("stop");
+                stopped = true;
+            }
+        }
+        stopSearch(cursor);
+        return null;
+    }
+
+    /**
+     * The move from a "bestmove e2e4 ponder e7e5" line; remembers the expected reply
      */
-    public String getBestMove(int thinkTimeMs) {
+    private String parseBestMove(String line) {
+        String[] parts = line.split("\\s+");
+        lastPonderMove = parts.length >= 4 && parts[2].equals("ponder") ? parts[3] : null;
+        return parts.length >= 2 && !parts[1].equals("(none)") ? parts[1] : null;
+    }
+
+    /**
+     * Search the position after the expected reply while the player thinks. Returns
+     * at once; the search runs until the player moves (see {@link #ponderHit}) or
+     * another exchange needs the engine. The hash is kept, so even a wrong guess
+     * leaves useful entries behind.
+     *
+     * @param thinkTimeMs search time once the reply is played, counted from now, so a
+     *                    player who thinks longer than this gets an immediate answer
+     * @return false if there is no expected reply to ponder on
+     */
+    public synchronized boolean startPondering(int thinkTimeMs) {
+        stopPondering();
+        String move = lastPonderMove;
+        lastPonderMove = null;
+        if (move == null) return false;
+
         try {
-            // Clear output buffer
-            outputBuffer.clear();
-
-            // Send command to find best move with a specific time
-            sendCommand("go movetime " + thinkTimeMs);
-
-            // Wait for "bestmove" response
-            long endTime = System.currentTimeMillis() + thinkTimeMs + 2000; // Add 2 seconds grace period
-            String bestMove = null;
-
-            // Keep checking for bestmove response
-            while (System.currentTimeMillis() < endTime) {
-                for (String line : outputBuffer) {
-                    if (line.startsWith("bestmove")) {
-                        String[] parts = line.split("\\s+");
-                        if (parts.length >= 2) {
-                            bestMove = parts[1];
-                            break;
-                        }
-                    }
-                }
+            // The player's moves are answered from this list while the engine is busy
+            List<String> legalMoves = getLegalMoves();
+            if (!legalMoves.contains(move)) return false;
+
+            String position = withMove(positionCommand, move);
+            String fen = fenAfter(currentFEN, move);
+            if (fen == null) return false;
+            setMultiPv(1);
+            sendCommand(position);
+            positionSent = false;
+
+            Ponder next = new Ponder(move, position, fen, legalMoves, thinkTimeMs);
+            next.cursor = output.cursor();
+            sendCommand("go ponder movetime " + thinkTimeMs);
+            ponder = next;
+            Log.d(TAG, "Pondering on " + move);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error starting to ponder", e);
+            return false;
+        }
+    }
 
-                if (bestMove != null) {
-                    break;
-                }
+    /**
+     * Tell the engine which move the player made. If it is the reply being pondered,
+     * the ponder search carries on as the search for the engine's answer, and the
+     * engine already has the new position.
+     *
+     * @return true on a ponder hit; otherwise pondering stops and the caller sets
+     * the new position as usual
+     */
+    public synchronized boolean ponderHit(String move) {
+        if (ponder == null || ponder.hit) return false;
+        if (!ponder.move.equals(move)) {
+            Log.d(TAG, "Ponder miss: expected " + ponder.move + ", got " + move);
+            stopPondering();
+            return false;
+        }
 
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
+        try {
+            sendCommand("ponderhit");
+        } catch (IOException e) {
+            Log.e(TAG, "Error sending ponderhit", e);
+            ponder = null;
+            return false;
+        }
+        Log.d(TAG, "Ponder hit on " + move);
+        ponder.hit = true;
+        // The engine already holds the new game position
+        positionCommand.setLength(0);
+        positionCommand.append(ponder.position);
+        positionSent = true;
+        currentFEN = ponder.fen;
+        return true;
+    }
 
-            return bestMove;
+    /**
+     * Stop pondering and forget its result
+     */
+    public synchronized void stopPondering() {
+        ponderResult = null;
+        if (ponder == null) return;
+        Ponder stopped = ponder;
+        ponder = null;
+        try {
+            stopSearch(stopped.cursor);
         } catch (IOException e) {
-            Log.e(TAG, "Error getting best move", e);
+            Log.w(TAG, "Error stopping the ponder search", e);
+        }
+    }
+
+    /**
+     * Wait for the search that started as a ponder and keep its result for getBestMove
+     */
+    private void finishPonder() throws IOException {
+        Ponder finished = ponder;
+        ponder = null;
+        ponderResult = finished.cursor.awaitLine("bestmove", finished.thinkTimeMs + 2000);
+        if (ponderResult == null) {
+            stopSearch(finished.cursor);
+        }
+    }
+
+    /**
+     * Free the engine for another search on the game position
+     *
+     * @return the ponder search to resume afterwards, or null
+     */
+    private Ponder pausePondering() throws IOException {
+        if (ponder == null) return null;
+        if (ponder.hit) {
+            finishPonder();
             return null;
         }
+        Ponder paused = ponder;
+        ponder = null;
+        stopSearch(paused.cursor);
+        return paused;
+    }
+
+    private void resumePondering(Ponder paused) {
+        if (paused == null) return;
+        try {
+            setMultiPv(1);
+            sendCommand(paused.position);
+            positionSent = false;
+            paused.cursor = output.cursor();
+            sendCommand("go ponder movetime " + paused.thinkTimeMs);
+            ponder = paused;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not resume pondering", e);
+        }
     }
 
     /**
@@ -219,9 +756,15 @@ public class StockfishManager {
      * @param fen FEN string representing the position
      * @return true if the position was set successfully
      */
-    public boolean setPosition(String fen) {
+    public synchronized boolean setPosition(String fen) {
         try {
-            sendCommand("position fen " + fen);
+            stopPondering();
+            positionCommand.setLength(0);
+            positionCommand.append("position fen ").append(fen);
+            currentFEN = fen;
+            // Sent now, as callers may start their own search with sendCommand
+            sendCommand(positionCommand.toString());
+            positionSent = true;
             return waitForReady(1000);
         } catch (IOException e) {
             Log.e(TAG, "Error setting position", e);
@@ -229,27 +772,77 @@ public class StockfishManager {
         }
     }
 
-    public boolean setPositionFromMoves(String... moves) {
-        try {
-            StringBuilder command = new StringBuilder("position startpos");
-            if (moves.length > 0) {
-                command.append(" moves");
-                for (String move : moves) {
-                    command.append(" ").append(move);
-                }
-            }
-            Log.d(TAG, "Setting position with command: " + command.toString());
-            sendCommand(command.toString());
-
-            // Verify the position was set correctly
-            String fen = getCurrentFEN();
-            Log.d(TAG, "Position set, resulting FEN: " + fen);
+    /**
+     * Sets the game position from the starting position and the moves played.
+     * Nothing is sent until the engine next needs the position.
+     *
+     * @return false if a move couldn't be played on the board
+     */
+    public synchronized boolean setPositionFromMoves(String... moves) {
+        stopPondering();
+        positionCommand.setLength(0);
+        positionCommand.append("position startpos");
+        positionSent = false;
+
+        // Replay the moves on the local board for the FEN
+        Board board = new Board();
+        boolean valid = true;
+        for (int i = 0; i < moves.length; i++) {
+            positionCommand.append(i == 0 ? " moves " : " ").append(moves[i]);
+            valid &= board.makeMove(moves[i]);
+        }
+        currentFEN = board.getFEN();
+        Log.d(TAG, "Position set, resulting FEN: " + currentFEN);
+        return valid;
+    }
 
-            return waitForReady(1000);
-        } catch (IOException e) {
-            Log.e(TAG, "Error setting position from moves", e);
+    /**
+     * Plays a move in the game position. Constant cost: the move is appended to the
+     * position command, which is sent lazily, and the FEN is updated locally.
+     *
+     * @return false if the move couldn't be played on the board
+     */
+    public synchronized boolean appendMove(String move) {
+        stopPondering();
+        String fen = fenAfter(currentFEN, move);
+        if (fen == null) {
+            Log.w(TAG, "Could not play " + move + " on " + currentFEN);
             return false;
         }
+        currentFEN = fen;
+        positionCommand.append(positionCommand.indexOf(" moves ") >= 0 ? " " : " moves ").append(move);
+        positionSent = false;
+        return true;
+    }
+
+    /**
+     * Send the game position if the engine doesn't hold it already
+     */
+    private void sendPosition() throws IOException {
+        if (!positionSent) {
+            sendCommand(positionCommand.toString());
+            positionSent = true;
+        }
+    }
+
+    private static String withMove(CharSequence position, String move) {
+        String command = position.toString();
+        return command + (command.contains(" moves ") ? " " : " moves ") + move;
+    }
+
+    /**
+     * The FEN after a move, from the local board model
+     *
+     * @return null if the move can't be played
+     */
+    private static String fenAfter(String fen, String move) {
+        try {
+            Board board = new Board(fen);
+            return board.makeMove(move) ? board.getFEN() : null;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Invalid FEN: " + fen, e);
+            return null;
+        }
     }
 
     /**
@@ -258,9 +851,10 @@ public class StockfishManager {
      * @param level Skill level (0 = weakest, 20 = strongest)
      * @return true if the skill level was set successfully
      */
-    public boolean setSkillLevel(int level) {
+    public synchronized boolean setSkillLevel(int level) {
         try {
-            sendCommand("setoption name Skill Level value " + level);
+            stopPondering();
+            sendOption("Skill Level", level);
             return waitForReady(1000);
         } catch (IOException e) {
             Log.e(TAG, "Error setting skill level", e);
@@ -268,6 +862,49 @@ public class StockfishManager {
         }
     }
 
+    /**
+     * Limits the playing strength: UCI_Elo where the engine supports the rating,
+     * Skill Level below that range, and no limit at full strength. The node budget
+     * is applied per search, see {@link TimeManager#forStrength}.
+     *
+     * @return true if the options were set successfully
+     */
+    public synchronized boolean setStrength(EngineStrength strength) {
+        try {
+            stopPondering();
+            sendOption("UCI_LimitStrength", strength.usesUciElo());
+            if (strength.usesUciElo()) {
+                sendOption("UCI_Elo", strength.elo);
+            }
+            sendOption("Skill Level", strength.skillLevel());
+            return waitForReady(1000);
+        } catch (IOException e) {
+            Log.e(TAG, "Error setting strength", e);
+            return false;
+        }
+    }
+
+    /**
+     * Sets Threads and Hash. Resizing the hash clears it, so call this between games
+     * or searches, not on every move.
+     *
+     * @return true if the options were set successfully
+     */
+    public synchronized boolean applyProfile(EngineProfile profile) {
+        try {
+            stopPondering();
+            sendOption("Threads", profile.threads);
+            sendOption("Hash", profile.hashMb);
+            // Allocating and clearing the table takes a moment on a large hash
+            boolean ready = waitForReady(5000);
+            if (ready) Log.d(TAG, "Applied " + profile);
+            return ready;
+        } catch (IOException e) {
+            Log.e(TAG, "Error applying engine profile", e);
+            return false;
+        }
+    }
+
     // Add these methods to your existing StockfishManager.java class
 
     /**
@@ -277,9 +914,10 @@ public class StockfishManager {
      * @param value Option value
      * @return true if the option was set successfully
      */
-    public boolean setOption(String name, String value) {
+    public synchronized boolean setOption(String name, String value) {
         try {
-            sendCommand("setoption name " + name + " value " + value);
+            stopPondering();
+            sendOption(name, value);
             return waitForReady(1000);
         } catch (IOException e) {
             Log.e(TAG, "Error setting option: " + name, e);
@@ -287,95 +925,129 @@ public class StockfishManager {
         }
     }
 
+    /**
+     * Send a setoption and remember it, so a restarted engine gets it too
+     */
+    private void sendOption(String name, Object value) throws IOException {
+        options.put(name, String.valueOf(value));
+        sendCommand("setoption name " + name + " value " + value);
+    }
+
     /**
      * Gets a detailed analysis of the current position.
      *
      * @param thinkTimeMs Time in milliseconds for the engine to analyze
-     * @return Detailed analysis including multiple best moves and evaluations
+     * @return the three best lines, one per row, e.g. "1. e2e4 e7e5 g1f3 (+0.35, depth 15)"
      */
-    public String getDetailedAnalysis(int thinkTimeMs) {
-        try {
-            // Clear output buffer
-            outputBuffer.clear();
-
-            // Tell engine to analyze
-            Log.d(TAG, "Starting analysis with time: " + thinkTimeMs + "ms");
-            sendCommand("go depth 15 multipv 3 movetime " + thinkTimeMs);
-
-            // Wait for analysis to complete
-            long endTime = System.currentTimeMillis() + thinkTimeMs + 1000;  // Add buffer
-            boolean foundBestMove = false;
-
-            while (System.currentTimeMillis() < endTime && !foundBestMove) {
-                for (String line : outputBuffer) {
-                    if (line.startsWith("bestmove")) {
-                        foundBestMove = true;
-                        break;
-                    }
-                }
+    public synchronized String getDetailedAnalysis(int thinkTimeMs) {
+        List<EngineAnalysis.Line> lines = analyse(null, EngineAnalysis.Limits.depthAndTime(15, thinkTimeMs), 3, null);
+        StringBuilder analysis = new StringBuilder();
+        for (EngineAnalysis.Line line : lines) {
+            List<String> moves = line.moves.subList(0, Math.min(6, line.moves.size()));
+            analysis.append(String.format(Locale.US, "%d. %s (%s, depth %d)\n",
+                    line.multipv, String.join(" ", moves), line.scoreText(), line.depth));
+        }
+        Log.d(TAG, "Analysis complete, found " + lines.size() + " lines");
+        return analysis.toString();
+    }
 
-                if (!foundBestMove) {
-                    try {
-                        Thread.sleep(50);  // Short sleep to prevent CPU spinning
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-            }
+    /**
+     * Run a short MultiPV search on a position.
+     *
+     * @param fen         the position to search, or null for the game position
+     * @param lineCount   number of principal variations to report
+     * @param thinkTimeMs search time in milliseconds
+     * @return one line per variation, best first, e.g. "e2e4 e7e5 g1f3 (+0.35)";
+     * scores are from the side to move's point of view. Empty on error.
+     */
+    public synchronized List<String> getTopLines(String fen, int lineCount, int thinkTimeMs) {
+        List<String> lines = new ArrayList<>();
+        for (EngineAnalysis.Line line : analyse(fen, EngineAnalysis.Limits.movetime(thinkTimeMs), lineCount, null)) {
+            lines.add(line.describe(4));
+        }
+        return lines;
+    }
 
-            // Stop analysis if it's still running
-            if (!foundBestMove) {
-                sendCommand("stop");
+    /**
+     * Search a position for its best variations. The engine keeps the MultiPV
+     * setting afterwards, so repeated analyses don't set it each time.
+     *
+     * @param fen      the position to analyse, or null for the game position
+     * @param limits   when the search ends
+     * @param multiPv  number of variations to report
+     * @param listener told each time a variation deepens, or null
+     * @return the deepest report of each variation, best first; scores are from the
+     * side to move's point of view. Empty on error.
+     */
+    public synchronized List<EngineAnalysis.Line> analyse(String fen, EngineAnalysis.Limits limits, int multiPv,
+                                                          EngineAnalysis.Listener listener) {
+        EngineAnalysis.Line[] best = new EngineAnalysis.Line[multiPv];
+        Ponder paused = null;
+        try {
+            paused = pausePondering();
+            setMultiPv(multiPv);
+            if (fen == null) {
+                sendPosition();
+            } else {
+                sendCommand("position fen " + fen);
+                positionSent = false;
             }
+            EngineOutputRing.Cursor cursor = output.cursor();
+            sendCommand("go" + limits.goArguments());
 
-            // Collect all the relevant output
-            StringBuilder analysis = new StringBuilder();
-            for (String line : outputBuffer) {
-                if (line.contains("info depth") && line.contains("score") && line.contains("pv")) {
-                    analysis.append(line).append("\n");
+            // Later (deeper) info lines overwrite earlier ones for the same multipv index
+            long endTime = System.currentTimeMillis() + limits.timeoutMs() + 1000;
+            boolean stopped = false;
+            String line;
+            while ((line = cursor.poll(endTime - System.currentTimeMillis())) != null || !stopped) {
+                if (line == null) {
+                    // Out of time: stop the search and read the rest of its output
+                    sendCommand("stop");
+                    endTime = System.currentTimeMillis() + 500;
+                    stopped = true;
+                    continue;
                 }
-            }
+                if (line.startsWith("bestmove")) break;
 
-            Log.d(TAG, "Analysis complete, found " + analysis.toString().split("\n").length + " lines");
-            return analysis.toString();
+                EngineAnalysis.Line parsed = EngineAnalysis.Line.parse(line);
+                if (parsed == null || parsed.multipv < 1 || parsed.multipv > multiPv) continue;
+                best[parsed.multipv - 1] = parsed;
+                if (listener != null) {
+                    listener.onUpdate(collectLines(best));
+                }
+            }
         } catch (IOException e) {
-            Log.e(TAG, "Error getting detailed analysis", e);
-            return "Error analyzing position: " + e.getMessage();
+            Log.e(TAG, "Error analysing position", e);
+        } finally {
+            resumePondering(paused);
         }
+        return collectLines(best);
     }
 
-    /**
-     * Gets the current output buffer from the engine.
-     * This is useful for analyzing the engine's responses.
-     *
-     * @return A copy of the current output buffer
-     */
-    public List<String> getOutputBuffer() {
-        return new ArrayList<>(outputBuffer);
+    private static List<EngineAnalysis.Line> collectLines(EngineAnalysis.Line[] best) {
+        List<EngineAnalysis.Line> lines = new ArrayList<>();
+        for (EngineAnalysis.Line line : best) {
+            if (line != null) lines.add(line);
+        }
+        return lines;
     }
 
     /**
-     * Check if analysis is complete (bestmove received)
+     * Set MultiPV if the engine doesn't have that value already. Only call while the
+     * engine isn't searching.
      */
-    private boolean containsBestMove() {
-        for (String line : outputBuffer) {
-            if (line.startsWith("bestmove")) {
-                return true;
-            }
-        }
-        return false;
+    private void setMultiPv(int lines) throws IOException {
+        if (lines == multiPv) return;
+        sendCommand("setoption name MultiPV value " + lines);
+        multiPv = lines;
     }
 
     /**
-     * Check if analysis is complete (bestmove received)
+     * A cursor over the engine's output from now on, for callers that send their
+     * own commands. Take it before sending the command.
      */
-    private boolean isAnalysisDone() {
-        for (String line : outputBuffer) {
-            if (line.startsWith("bestmove")) {
-                return true;
-            }
-        }
-        return false;
+    public EngineOutputRing.Cursor newOutputCursor() {
+        return output.cursor();
     }
 
     /**
@@ -383,61 +1055,49 @@ public class StockfishManager {
      *
      * @param move The move to evaluate in UCI format
      * @param thinkTimeMs Time to analyze
-     * @return The evaluation score in centipawns
+     * @return The evaluation in pawns for the side making the move; a forced mate
+     * counts as 100 pawns. 0 on error.
      */
-    public float evaluateMove(String move, int thinkTimeMs) {
-        try {
-            // Make the move
-            String fen = getCurrentFEN();
-            sendCommand("position fen " + fen + " moves " + move);
-
-            // Clear output buffer
-            outputBuffer.clear();
-
-            // Analyze the resulting position
-            sendCommand("go depth 16 movetime " + thinkTimeMs);
-
-            // Wait for analysis to complete
-            long endTime = System.currentTimeMillis() + thinkTimeMs + 2000;
-            while (System.currentTimeMillis() < endTime && !isAnalysisDone()) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+    public synchronized float evaluateMove(String move, int thinkTimeMs) {
+        EngineAnalysis.Line line = evaluateMoves(null, Collections.singletonList(move), thinkTimeMs).get(move);
+        if (line == null) return 0.0f;
+        return line.mate ? Math.signum(line.score) * 100.0f : line.score / 100.0f;
+    }
 
-            // Stop the analysis if it's still running
-            sendCommand("stop");
-
-            // Find the score
-            float score = 0.0f;
-            for (String line : outputBuffer) {
-                if (line.contains("score cp ")) {
-                    int scoreIndex = line.indexOf("score cp ") + 9;
-                    int endIndex = line.indexOf(" ", scoreIndex);
-                    if (endIndex > scoreIndex) {
-                        try {
-                            score = Float.parseFloat(line.substring(scoreIndex, endIndex)) / 100.0f;
-                            // Negate score because we're looking from the opponent's perspective
-                            score = -score;
-                            break;
-                        } catch (NumberFormatException e) {
-                            // Skip this line
-                        }
-                    }
-                }
+    /**
+     * Score several candidate moves with one search: MultiPV with one variation per
+     * candidate, restricted to the candidates with "go searchmoves". The moves share
+     * the search, and its hash, instead of each getting a search of its own, and
+     * the scores come from the same depth so they compare fairly.
+     *
+     * @param fen         the position, or null for the game position
+     * @param moves       candidate moves in UCI notation; illegal ones are left out
+     * @param thinkTimeMs search time for all of them together
+     * @return the variation for each candidate the engine reported, in the order of
+     * the candidates; scores are for the side to move. Empty on error.
+     */
+    public synchronized Map<String, EngineAnalysis.Line> evaluateMoves(String fen, List<String> moves, int thinkTimeMs) {
+        List<String> candidates = new ArrayList<>();
+        List<String> legal = fen == null ? getLegalMoves() : null;
+        if (legal != null && legal.isEmpty()) legal = null; // not known right now; let the engine decide
+        for (String move : moves) {
+            if ((legal == null || legal.contains(move)) && !candidates.contains(move)) {
+                candidates.add(move);
             }
+        }
 
-            // Restore the original position
-            sendCommand("position fen " + fen);
+        Map<String, EngineAnalysis.Line> scores = new LinkedHashMap<>();
+        if (candidates.isEmpty()) return scores;
 
-            return score;
-        } catch (IOException e) {
-            Log.e(TAG, "Error evaluating move", e);
-            return 0.0f;
+        EngineAnalysis.Limits limits = EngineAnalysis.Limits.movetime(thinkTimeMs).withSearchMoves(candidates);
+        Map<String, EngineAnalysis.Line> byMove = new HashMap<>();
+        for (EngineAnalysis.Line line : analyse(fen, limits, candidates.size(), null)) {
+            byMove.put(line.move(), line);
+        }
+        for (String move : candidates) {
+            if (byMove.containsKey(move)) scores.put(move, byMove.get(move));
         }
+        return scores;
     }
 
     /**
@@ -446,7 +1106,7 @@ public class StockfishManager {
      * @param thinkTimeMs Time to analyze
      * @return A description of the best move and why it's good
      */
-    public String getBestMoveWithExplanation(int thinkTimeMs) {
+    public synchronized String getBestMoveWithExplanation(int thinkTimeMs) {
         String bestMove = getBestMove(thinkTimeMs);
         if (bestMove == null || bestMove.isEmpty()) {
             return "No best move found";
@@ -458,21 +1118,8 @@ public class StockfishManager {
         explanation.append("Best move: ").append(bestMove);
         explanation.append(" (Evaluation: ").append(String.format("%.2f", evaluation)).append(")");
 
-        // Add some basic positional understanding
-        // (This would be expanded with more sophisticated pattern recognition)
-        if (evaluation > 2.0) {
-            explanation.append("\nThis move gives a winning advantage!");
-        } else if (evaluation > 0.5) {
-            explanation.append("\nThis move gives a clear advantage.");
-        } else if (evaluation > 0.2) {
-            explanation.append("\nThis move gives a slight advantage.");
-        } else if (evaluation < -2.0) {
-            explanation.append("\nTrying to minimize a losing position.");
-        } else if (evaluation < -0.5) {
-            explanation.append("\nTrying to equalize from a worse position.");
-        } else {
-            explanation.append("\nThis move keeps the position balanced.");
-        }
+        // The evaluation is from the side to move's point of view
+        explanation.append("\n").append(LocalCoach.describeEvaluation(evaluation));
 
         return explanation.toString();
     }
@@ -480,11 +1127,22 @@ public class StockfishManager {
      * Stops the engine process.
      */
     public void stopEngine() {
+        synchronized (watchdogSignal) {
+            stopping = true;
+            watchdogSignal.notifyAll();
+        }
+        if (inProcess) {
+            // The native side sends "quit" and waits for the engine thread
+            if (isRunning.getAndSet(false)) {
+                nativeQuit();
+            }
+            inProcess = false;
+            inProcessEngineTaken.set(false);
+            return;
+        }
         if (isRunning.get()) {
-            isRunning.set(false);
-
             try {
-                // Send quit command
+                // Send quit command, while sendCommand still accepts it
                 sendCommand("quit");
 
                 // Wait for the process to exit
@@ -492,28 +1150,48 @@ public class StockfishManager {
             } catch (Exception e) {
                 Log.w(TAG, "Error stopping engine gracefully", e);
             } finally {
-                // Force close everything
-                try {
-                    if (reader != null) reader.close();
-                } catch (Exception e) {
-                    Log.w(TAG, "Error closing reader", e);
-                }
+                isRunning.set(false);
+                closeProcess();
+            }
+        }
+        // Nothing will answer any more
+        output.close();
+    }
 
-                try {
-                    if (writer != null) writer.close();
-                } catch (Exception e) {
-                    Log.w(TAG, "Error closing writer", e);
-                }
+    /**
+     * Kill the engine process and release its streams
+     */
+    private void closeProcess() {
+        // Ending the process ends the reader thread's readLine; closing the reader
+        // first would block on the lock that readLine holds
+        if (process != null) {
+            process.destroy();
+        }
+        if (readerThread != null && readerThread != Thread.currentThread()) {
+            try {
+                readerThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-                if (process != null) {
-                    process.destroy();
-                }
+        // Force close everything
+        try {
+            if (reader != null) reader.close();
+        } catch (Exception e) {
+            Log.w(TAG, "Error closing reader", e);
+        }
 
-                process = null;
-                reader = null;
-                writer = null;
-            }
+        try {
+            if (writer != null) writer.close();
+        } catch (Exception e) {
+            Log.w(TAG, "Error closing writer", e);
         }
+
+        process = null;
+        reader = null;
+        writer = null;
+        readerThread = null;
     }
 
     /**
@@ -521,8 +1199,10 @@ public class StockfishManager {
      *
      * @return true if the command was successful
      */
-    public boolean newGame() {
+    public synchronized boolean newGame() {
         try {
+            stopPondering();
+            lastPonderMove = null;
             sendCommand("ucinewgame");
             return waitForReady(1000);
         } catch (IOException e) {
@@ -535,101 +1215,87 @@ public class StockfishManager {
      * Checks if a move is legal from the current position.
      */
     public boolean isLegalMove(String move) {
-        try {
-            // Set up the position and try the move
-            String posCommand = "position fen " + currentFEN + " moves " + move;
-            sendCommand(posCommand);
+        return getLegalMoves().contains(move);
+    }
 
-            // If the position is valid, we should get "readyok" when we check if ready
-            return waitForReady(100);
-        } catch (IOException e) {
-            Log.e(TAG, "Error checking legal move", e);
-            return false;
+    /**
+     * All legal moves in the current position, in UCI notation, from a one-ply perft.
+     * Returns as soon as the engine has listed them; repeated calls for the same
+     * position are answered from the last list without taking the lock, so taps on
+     * the board don't wait for an analysis or a coach search holding the engine.
+     */
+    public List<String> getLegalMoves() {
+        LegalMoves cached = legalMoveCache;
+        if (cached != null && cached.fen.equals(currentFEN)) {
+            return new ArrayList<>(cached.moves);
         }
+        return listLegalMoves();
     }
 
-    public List<String> getLegalMovesForPiece(int row, int col) {
+    private synchronized List<String> listLegalMoves() {
         List<String> moves = new ArrayList<>();
+        if (ponder != null) {
+            // The engine is busy; the list was taken when pondering started
+            if (!ponder.hit) moves.addAll(ponder.legalMoves);
+            return moves;
+        }
+        String fen = currentFEN;
+        LegalMoves cached = legalMoveCache;
+        if (cached != null && cached.fen.equals(fen)) {
+            moves.addAll(cached.moves);
+            return moves;
+        }
         try {
-            // Get current FEN first
-            String currentFen = getCurrentFEN();
-            if (currentFen == null) return moves;
-
-            // Convert board coordinates to algebraic
-            char file = (char) ('a' + col);
-            int rank = 8 - row;
-            String square = "" + file + rank;
-
-            Log.d(TAG, "Getting legal moves for piece at " + square);
-
-            // We'll use a more efficient approach - get all legal moves from the position
-            // and filter for ones that start from our square
-            outputBuffer.clear();
-            sendCommand("position fen " + currentFen);
+            sendPosition();
+            EngineOutputRing.Cursor cursor = output.cursor();
             sendCommand("go perft 1");
 
-            // Wait for response
-            Thread.sleep(100);
-
-            // Parse the output to find moves starting from our square
-            for (String line : outputBuffer) {
-                if (line.startsWith(square) ||
-                        line.contains(" " + square) ||
-                        line.contains(":" + square)) {
-
-                    String[] parts = line.split("\\s+");
-                    for (String part : parts) {
-                        if (part.startsWith(square) && part.length() >= 4) {
-                            moves.add(part);
-                            Log.d(TAG, "Found legal move: " + part);
-                        }
-                    }
+            // Lines look like "e2e4: 1", then "Nodes searched: 20"
+            long endTime = System.currentTimeMillis() + 1000;
+            String line;
+            while ((line = cursor.poll(endTime - System.currentTimeMillis())) != null
+                    && !line.startsWith("Nodes searched")) {
+                int colon = line.indexOf(':');
+                if (colon >= 4 && colon <= 5 && line.matches("[a-h][1-8][a-h][1-8][qrbn]?: .*")) {
+                    moves.add(line.substring(0, colon));
                 }
             }
-
-            // If that didn't work, fall back to checking specific moves
-            if (moves.isEmpty()) {
-                for (int r = 0; r < 8; r++) {
-                    for (int c = 0; c < 8; c++) {
-                        String move = "" + file + rank + (char)('a' + c) + (8 - r);
-                        if (isLegalMove(move)) {
-                            moves.add(move);
-                            Log.d(TAG, "Found legal move (fallback): " + move);
-                        }
-                    }
-                }
+            if (line == null) {
+                if (failure != null) throw new EngineFailureException(failure);
+                Log.w(TAG, "Timed out listing legal moves");
+            } else {
+                legalMoveCache = new LegalMoves(fen, moves);
             }
-
-            return moves;
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting legal moves for piece", e);
-            return moves;
+        } catch (IOException e) {
+            Log.e(TAG, "Error listing legal moves", e);
         }
+        return moves;
     }
 
-    /**
-     * Get the current position in FEN notation
-     */
-    public String getCurrentFEN() {
-        try {
-            outputBuffer.clear();
-            sendCommand("d");
+    public List<String> getLegalMovesForPiece(int row, int col) {
+        List<String> moves = new ArrayList<>();
 
-            // Wait for the response
-            Thread.sleep(100);
+        // Convert board coordinates to algebraic
+        char file = (char) ('a' + col);
+        int rank = 8 - row;
+        String square = "" + file + rank;
 
-            // Look for the FEN line in the output
-            for (String line : outputBuffer) {
-                if (line.startsWith("Fen: ")) {
-                    currentFEN = line.substring(5).trim();
-                    return currentFEN;
-                }
-            }
+        Log.d(TAG, "Getting legal moves for piece at " + square);
 
-            return currentFEN; // Return the cached value if we can't get a new one
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting current FEN", e);
-            return currentFEN;
+        // Filter all legal moves from the position for ones that start from our square
+        for (String move : getLegalMoves()) {
+            if (move.startsWith(square)) {
+                moves.add(move);
+            }
         }
+        return moves;
+    }
+
+    /**
+     * Get the current position in FEN notation. The position is tracked locally as
+     * moves are played, so this doesn't ask the engine (or wait for it).
+     */
+    public String getCurrentFEN() {
+        return currentFEN;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package com.example.chesspedagogue;
+
+import java.util.Locale;
+
+/**
+ * Decides how long the engine thinks about each move. The budget follows the game
+ * phase and the number of legal moves: a forced move is played without searching,
+ * a recapture with two or three options gets a fraction of the normal time. With a
+ * game clock the engine's own time management takes over ("go wtime ... btime ...").
+ * During the search, a {@link Stability} tracker ends it early once the best move and
+ * score have stopped changing.
+ */
+public class TimeManager {
+    private static final long MIN_BUDGET_MS = 50;
+    private static final long MIN_NODES = 500;
+    // With a node budget the time limit only guards against very slow devices
+    private static final int SLOW_DEVICE_FACTOR = 4;
+
+    // Depths the best move must have held, and the score swing allowed meanwhile
+    private static final int MIN_STOP_DEPTH = 10;
+    private static final int STABLE_ITERATIONS = 5;
+    private static final int STABLE_SCORE_CP = 25;
+    // Never stop before this share of the budget has been used
+    private static final double MIN_BUDGET_SHARE = 0.1;
+
+    private final long baseMs;
+    // Nodes for an ordinary move, or 0 to search by time only
+    private final long baseNodes;
+
+    // Game clock, or -1 when there is none
+    private long whiteMs = -1;
+    private long blackMs = -1;
+    private long incrementMs = 0;
+
+    /**
+     * @param baseMs the time for an ordinary middlegame move
+     */
+    public TimeManager(long baseMs) {
+        this(baseMs, 0);
+    }
+
+    /**
+     * @param baseNodes node budget for an ordinary middlegame move; scaled like the time
+     */
+    public TimeManager(long baseMs, long baseNodes) {
+        this.baseMs = baseMs;
+        this.baseNodes = baseNodes;
+    }
+
+    /**
+     * Weaker levels play weaker moves anyway, so they get less time, and limited
+     * levels search a fixed number of nodes so they play alike on every device.
+     * The top level keeps the old fixed second per move.
+     */
+    public static TimeManager forStrength(EngineStrength strength) {
+        return new TimeManager(200 + 40L * strength.level, strength.nodes);
+    }
+
+    /**
+     * Play with a clock; pass a negative time to go back to fixed budgets
+     */
+    public synchronized void setClock(long whiteMs, long blackMs, long incrementMs) {
+        this.whiteMs = whiteMs;
+        this.blackMs = blackMs;
+        this.incrementMs = incrementMs;
+    }
+
+    public synchronized boolean hasClock() {
+        return whiteMs >= 0 && blackMs >= 0;
+    }
+
+    /**
+     * Time for a move without a clock
+     *
+     * @param fen             the position to move in
+     * @param legalMoveCount  number of legal moves, or a negative number if unknown
+     * @return 0 if the move is forced and needs no search
+     */
+    public long moveBudget(String fen, int legalMoveCount) {
+        if (legalMoveCount == 1) return 0;
+
+        double budget = baseMs;
+        switch (phase(fen)) {
+            case "opening":
+                budget *= 0.6;  // well-known ground, and the coach explains more than it plays
+                break;
+            case "middlegame":
+                budget *= 1.2;
+                break;
+            default:
+                budget *= 0.8;
+                break;
+        }
+
+        // Few choices, e.g. recapturing or getting out of check
+        if (legalMoveCount >= 0 && legalMoveCount <= 4) {
+            budget *= 0.4;
+        } else if (legalMoveCount >= 0 && legalMoveCount <= 10) {
+            budget *= 0.7;
+        }
+        return Math.max(MIN_BUDGET_MS, Math.min(3 * baseMs, Math.round(budget)));
+    }
+
+    /**
+     * Search time for pondering on the player's time, counted from when it starts
+     */
+    public synchronized long ponderBudget(String fen) {
+        if (hasClock()) {
+            // Assume a typical thirty moves to go with the engine's clock
+            PositionSnapshot position = PositionSnapshot.fromFen(fen);
+            boolean engineWhite = position != null && !position.isWhiteToMove();
+            return Math.max(MIN_BUDGET_MS, (engineWhite ? whiteMs : blackMs) / 30 + incrementMs);
+        }
+        return moveBudget(fen, -1);
+    }
+
+    /**
+     * The go command for a move
+     */
+    public synchronized String goCommand(long budgetMs) {
+        StringBuilder go = new StringBuilder("go");
+        if (baseNodes > 0) {
+            long nodes = Math.round(baseNodes * (double) budgetMs / baseMs);
+            go.append(" nodes ").append(Math.max(MIN_NODES, nodes));
+        }
+        if (hasClock()) {
+            go.append(String.format(Locale.US, " wtime %d btime %d winc %d binc %d",
+                    whiteMs, blackMs, incrementMs, incrementMs));
+        } else {
+            go.append(" movetime ").append(baseNodes > 0 ? budgetMs * SLOW_DEVICE_FACTOR : budgetMs);
+        }
+        return go.toString();
+    }
+
+    /**
+     * How long to wait for a bestmove before giving up on the search
+     */
+    public synchronized long searchTimeout(String fen, long budgetMs) {
+        if (!hasClock()) return baseNodes > 0 ? budgetMs * SLOW_DEVICE_FACTOR : budgetMs;
+        PositionSnapshot position = PositionSnapshot.fromFen(fen);
+        boolean white = position == null || position.isWhiteToMove();
+        return white ? whiteMs : blackMs;
+    }
+
+    /**
+     * "opening", "middlegame" or "endgame", from the material left and the move number
+     */
+    static String phase(String fen) {
+        if (fen == null) return "middlegame";
+        String[] fields = fen.trim().split("\\s+");
+        int pieces = 0;
+        for (char c : fields[0].toCharArray()) {
+            if ("nbrqNBRQ".indexOf(c) >= 0) pieces++;
+        }
+        int moveNumber = 1;
+        if (fields.length > 5) {
+            try {
+                moveNumber = Integer.parseInt(fields[5]);
+            } catch (NumberFormatException ignored) {
+                // Keep the default
+            }
+        }
+
+        if (pieces <= 6) return "endgame";
+        if (moveNumber <= 8 && pieces >= 12) return "opening";
+        return "middlegame";
+    }
+
+    /**
+     * Watches the iterations of one search and says when more time is unlikely to
+     * change the answer
+     */
+    public static final class Stability {
+        private final long budgetMs;
+        private final long startTime = System.currentTimeMillis();
+        private String move;
+        private int score;
+        private int stableIterations;
+        private int lastDepth;
+
+        public Stability(long budgetMs) {
+            this.budgetMs = budgetMs;
+        }
+
+        /**
+         * Feed an engine output line
+         *
+         * @return true if the search can be stopped now
+         */
+        public boolean update(String line) {
+            if (!line.startsWith("info ") || !line.contains(" pv ")) return false;
+
+            String[] parts = line.split("\\s+");
+            int depth = -1;
+            int lineScore = 0;
+            boolean mate = false;
+            String firstMove = null;
+            for (int i = 1; i < parts.length - 1; i++) {
+                switch (parts[i]) {
+                    case "depth":
+                        depth = parseInt(parts[i + 1]);
+                        break;
+                    case "multipv":
+                        if (!parts[i + 1].equals("1")) return false; // only the best line counts
+                        break;
+                    case "score":
+                        if (i + 2 < parts.length) {
+                            mate = parts[i + 1].equals("mate");
+                            lineScore = parseInt(parts[i + 2]);
+                        }
+                        break;
+                    case "pv":
+                        firstMove = parts[i + 1];
+                        break;
+                }
+                if (firstMove != null) break;
+            }
+            // Bound scores and repeated depths say nothing new
+            if (depth <= lastDepth || firstMove == null || line.contains(" lowerbound")
+                    || line.contains(" upperbound")) {
+                return false;
+            }
+            lastDepth = depth;
+
+            // A found mate counts as stable as long as the move holds
+            int cp = mate ? (lineScore > 0 ? 100000 : -100000) : lineScore;
+            if (firstMove.equals(move) && Math.abs(cp - score) <= STABLE_SCORE_CP) {
+                stableIterations++;
+            } else {
+                stableIterations = 0;
+            }
+            move = firstMove;
+            score = cp;
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            return depth >= MIN_STOP_DEPTH && stableIterations >= STABLE_ITERATIONS
+                    && elapsed >= budgetMs * MIN_BUDGET_SHARE;
+        }
+
+        private static int parseInt(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.chesspedagogue;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.media.audiofx.AcousticEchoCanceler;
+import android.media.audiofx.NoiseSuppressor;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Lightweight voice activity detector on a raw microphone stream, used to notice
+ * the player talking over the coach. Each 10 ms frame is classified from its energy
+ * (against an adaptive noise floor) and its zero-crossing rate; a few voiced frames
+ * in a row count as speech. That is a few operations per sample, far cheaper than
+ * keeping a speech recognizer session open.
+ * The echo canceller is enabled when the device has one, so the coach's own voice
+ * is mostly removed from the input.
+ */
+public class VoiceActivityDetector {
+    private static final String TAG = "VoiceActivityDetector";
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE / 100; // 10 ms
+
+    // The first frames only measure the background noise
+    private static final int CALIBRATION_FRAMES = 15;
+    // Voiced frames in a row before speech is reported (30 ms)
+    private static final int ONSET_FRAMES = 3;
+    // How far above the noise floor a frame must be, and the quietest frame that can be speech
+    private static final double MARGIN_DB = 12.0;
+    private static final double MIN_SPEECH_DB = -50.0;
+    // Fraction of sign changes per sample typical of speech; lower is hum, higher is hiss
+    private static final double MIN_ZCR = 0.01;
+    private static final double MAX_ZCR = 0.35;
+    // How quickly the noise floor follows non-speech frames
+    private static final double FLOOR_ADAPT = 0.05;
+
+    /**
+     * Told once when speech starts; called on the detector's thread
+     */
+    public interface Listener {
+        void onSpeechStart();
+    }
+
+    // The thread of the current session; an old session's thread stops when this changes
+    private volatile Thread thread;
+
+    /**
+     * Start listening; does nothing if already running
+     *
+     * @return false if the microphone could not be opened (e.g. no permission)
+     */
+    public synchronized boolean start(Listener listener) {
+        if (thread != null) return true;
+
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record;
+        try {
+            // VOICE_COMMUNICATION applies the platform's echo cancellation where it has one
+            record = new AudioRecord(MediaRecorder.AudioSource.VOICE_COMMUNICATION, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBuffer, FRAME_SAMPLES * 2 * 4));
+        } catch (SecurityException | IllegalArgumentException e) {
+            Log.e(TAG, "Could not create AudioRecord", e);
+            return false;
+        }
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "Microphone not available");
+            record.release();
+            return false;
+        }
+
+        thread = new Thread(() -> run(record, listener), "VoiceActivityDetector");
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Stop listening and release the microphone. Safe to call from the listener.
+     */
+    public synchronized void stop() {
+        thread = null;
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    private synchronized boolean finishSession() {
+        if (thread != Thread.currentThread()) return false;
+        thread = null;
+        return true;
+    }
+
+    private void run(AudioRecord record, Listener listener) {
+        AcousticEchoCanceler echoCanceler = null;
+        NoiseSuppressor noiseSuppressor = null;
+        try {
+            if (AcousticEchoCanceler.isAvailable()) {
+                echoCanceler = AcousticEchoCanceler.create(record.getAudioSessionId());
+                if (echoCanceler != null) echoCanceler.setEnabled(true);
+            }
+            if (NoiseSuppressor.isAvailable()) {
+                noiseSuppressor = NoiseSuppressor.create(record.getAudioSessionId());
+                if (noiseSuppressor != null) noiseSuppressor.setEnabled(true);
+            }
+
+            record.startRecording();
+            short[] frame = new short[FRAME_SAMPLES];
+            double noiseFloor = 0;
+            int frames = 0;
+            int voiced = 0;
+
+            while (thread == Thread.currentThread()) {
+                int read = record.read(frame, 0, FRAME_SAMPLES);
+                if (read <= 0) {
+                    Log.w(TAG, "Microphone read failed: " + read);
+                    break;
+                }
+
+                double energyDb = energyDb(frame, read);
+                double zcr = zeroCrossingRate(frame, read);
+
+                if (frames++ < CALIBRATION_FRAMES) {
+                    noiseFloor = frames == 1 ? energyDb : noiseFloor + (energyDb - noiseFloor) / frames;
+                    continue;
+                }
+
+                boolean speech = energyDb > noiseFloor + MARGIN_DB && energyDb > MIN_SPEECH_DB
+                        && zcr >= MIN_ZCR && zcr <= MAX_ZCR;
+                if (speech) {
+                    if (++voiced >= ONSET_FRAMES) {
+                        Log.d(TAG, String.format(Locale.US, "Speech detected: %.1f dB (floor %.1f dB), zcr %.2f",
+                                energyDb, noiseFloor, zcr));
+                        // Unless stop() got in first
+                        if (finishSession()) listener.onSpeechStart();
+                        break;
+                    }
+                } else {
+                    voiced = 0;
+                    noiseFloor += (energyDb - noiseFloor) * FLOOR_ADAPT;
+                }
+            }
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error reading the microphone", e);
+        } finally {
+            finishSession();
+            try {
+                record.stop();
+            } catch (IllegalStateException ignored) {
+                // Never started
+            }
+            record.release();
+            if (echoCanceler != null) echoCanceler.release();
+            if (noiseSuppressor != null) noiseSuppressor.release();
+        }
+    }
+
+    /**
+     * Frame energy in dB relative to full scale
+     */
+    static double energyDb(short[] samples, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        double rms = Math.sqrt(sum / count) / Short.MAX_VALUE;
+        return 20 * Math.log10(Math.max(rms, 1e-6));
+    }
+
+    /**
+     * Fraction of consecutive samples that change sign
+     */
+    static double zeroCrossingRate(short[] samples, int count) {
+        int crossings = 0;
+        for (int i = 1; i < count; i++) {
+            if ((samples[i - 1] >= 0) != (samples[i] >= 0)) crossings++;
+        }
+        return count > 1 ? (double) crossings / (count - 1) : 0;
+    }
+}
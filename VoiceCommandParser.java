@@ -0,0 +1,318 @@
+package com.example.chesspedagogue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns recognized speech into a move or a board command without asking the coach.
+ * Understands spoken SAN-like phrases ("knight to f3", "e4", "bishop takes c6",
+ * "pawn takes queen", "castle kingside", "e8 promote to knight") and commands
+ * ("take back", "flip the board"). Moves are resolved against the legal move list;
+ * anything that doesn't match comes back as {@link Type#NONE} so the caller can
+ * pass it on to the coach.
+ */
+public class VoiceCommandParser {
+
+    public enum Type {
+        MOVE,       // a single legal move matched; see {@link Command#move}
+        AMBIGUOUS,  // several legal moves matched; see {@link Command#candidates}
+        UNDO,
+        FLIP,
+        NONE        // not a command; ask the coach
+    }
+
+    public static final class Command {
+        public final Type type;
+        public final String move;
+        public final List<String> candidates;
+
+        Command(Type type, String move, List<String> candidates) {
+            this.type = type;
+            this.move = move;
+            this.candidates = candidates;
+        }
+
+        static Command of(Type type) {
+            return new Command(type, null, new ArrayList<>());
+        }
+    }
+
+    // A move written as one word: "f3", "nf3", "e2e4", "e7e8q"
+    private static final Pattern GLUED = Pattern.compile("([nbrqk])?([a-h])([1-8])(?:([a-h])([1-8]))?([qrbn])?");
+    private static final String[] PIECE_NAMES = {"knight", "bishop", "rook", "queen", "king"};
+
+    // Words speech recognizers commonly produce for piece names, files and ranks
+    private static final Map<String, String> WORDS = new HashMap<>();
+
+    static {
+        String[][] aliases = {
+                {"knight", "knight", "night", "knights", "nights", "horse"},
+                {"bishop", "bishop", "bishops"},
+                {"rook", "rook", "rooks", "rock", "brook"},
+                {"queen", "queen", "queens"},
+                {"king", "king", "kings"},
+                {"pawn", "pawn", "pawns", "porn", "prawn", "pond"},
+                {"a", "a", "alpha", "ay"},
+                {"b", "b", "be", "bee", "bravo"},
+                {"c", "c", "see", "sea", "charlie"},
+                {"d", "d", "dee", "delta"},
+                {"e", "e", "ee", "echo"},
+                {"f", "f", "ef", "eff", "foxtrot"},
+                {"g", "g", "gee", "jee", "golf"},
+                {"h", "h", "aitch", "age", "hotel"},
+                {"1", "1", "one", "won"},
+                {"2", "2", "two", "too"},
+                {"3", "3", "three", "tree"},
+                {"4", "4", "four", "for", "fore"},
+                {"5", "5", "five"},
+                {"6", "6", "six"},
+                {"7", "7", "seven"},
+                {"8", "8", "eight", "ate"},
+                {"takes", "takes", "take", "captures", "capture", "x"},
+                {"promote", "promote", "promotes", "promoting", "promotion", "equals"},
+        };
+        for (String[] group : aliases) {
+            for (int i = 1; i < group.length; i++) {
+                WORDS.put(group[i], group[0]);
+            }
+        }
+    }
+
+    // Words that may appear in a move phrase without meaning anything
+    private static final Set<String> FILLER = new HashSet<>(Arrays.asList(
+            "to", "the", "my", "move", "moves", "play", "go", "goes", "on", "square", "and", "please",
+            "i", "i'll", "let's", "lets", "then", "with", "a", "an", "into", "onto", "from", "okay", "ok"));
+    private static final Set<String> CASTLING = new HashSet<>(Arrays.asList(
+            "castle", "castles", "castling", "kingside", "queenside", "king-side", "queen-side",
+            "king", "queen", "side", "short", "long", "o-o", "o-o-o"));
+    // Board commands are only taken as such when nothing else was said, so questions
+    // like "should I take back on d5?" or "whose turn is it on the board?" reach the coach
+    private static final Set<String> UNDO = new HashSet<>(Arrays.asList(
+            "take", "takeback", "back", "undo", "that", "last", "it", "can", "you", "let", "me"));
+    private static final Set<String> FLIP = new HashSet<>(Arrays.asList(
+            "flip", "rotate", "turn", "board", "around", "over", "can", "you"));
+
+    /**
+     * Parse an utterance
+     *
+     * @param utterance  the recognized text
+     * @param position   the current position, to know which piece stands where
+     * @param legalMoves legal moves in UCI notation for the side to move, or null if the
+     *                   player can't move now. Only asked for once the words parse as a move.
+     */
+    public Command parse(String utterance, PositionSnapshot position, Supplier<List<String>> legalMoves) {
+        if (utterance == null) return Command.of(Type.NONE);
+        String text = " " + utterance.toLowerCase().replaceAll("[^a-z0-9' -]", " ")
+                .replaceAll("\\s+", " ").trim() + " ";
+
+        // Board commands
+        if ((text.contains(" take back ") || text.contains(" takeback ") || text.contains(" undo ")
+                || text.contains(" go back ")) && onlyWords(text, UNDO)) {
+            return Command.of(Type.UNDO);
+        }
+        if ((text.contains(" flip ") || text.contains(" rotate ") || text.contains(" turn "))
+                && text.contains(" board ") && onlyWords(text, FLIP)) {
+            return Command.of(Type.FLIP);
+        }
+
+        if (position == null) return Command.of(Type.NONE);
+
+        // Castling
+        if (text.contains(" castl") || text.contains(" o-o")) {
+            if (!onlyWords(text, CASTLING)) return Command.of(Type.NONE);
+            List<String> moves = legalMoves.get();
+            if (moves == null) return Command.of(Type.NONE);
+            boolean queenside = text.contains("queen") || text.contains(" long ") || text.contains("o-o-o");
+            return resolve(castlingMoves(position, moves, queenside));
+        }
+
+        Spoken spoken = tokenize(text);
+        if (spoken == null) return Command.of(Type.NONE);
+        List<String> moves = legalMoves.get();
+        if (moves == null) return Command.of(Type.NONE);
+        return resolve(matchMoves(spoken, position, moves));
+    }
+
+    /**
+     * True if every word is one of the given command words or filler
+     */
+    private static boolean onlyWords(String text, Set<String> words) {
+        for (String word : text.trim().split(" ")) {
+            if (!words.contains(word) && !FILLER.contains(word)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * What was said about a move: any of these may be missing
+     */
+    private static final class Spoken {
+        char piece = 0;          // moving piece, as an uppercase SAN letter ('P' for pawn)
+        String fromSquare;       // "g1"
+        char fromFile = 0;       // "knight b to d2"
+        String toSquare;
+        char capturedPiece = 0;  // "pawn takes queen"
+        char promotion = 0;      // lowercase UCI letter
+        boolean capture;
+    }
+
+    /**
+     * Pull the move elements out of the words, in the order they were said.
+     * Returns null if a word doesn't belong in a move phrase (e.g. "is e4 good"),
+     * so questions that mention a square still go to the coach.
+     */
+    private static Spoken tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : text.trim().split(" ")) {
+            Matcher glued = GLUED.matcher(word);
+            if (word.length() > 1 && glued.matches()) {
+                if (glued.group(1) != null) tokens.add(pieceName(glued.group(1).charAt(0)));
+                tokens.add(glued.group(2));
+                tokens.add(glued.group(3));
+                if (glued.group(4) != null) {
+                    tokens.add(glued.group(4));
+                    tokens.add(glued.group(5));
+                }
+                if (glued.group(6) != null) {
+                    tokens.add("promote");
+                    tokens.add(pieceName(glued.group(6).charAt(0)));
+                }
+                continue;
+            }
+            String mapped = WORDS.get(word);
+            if (mapped != null) {
+                tokens.add(mapped);
+            } else if (!FILLER.contains(word)) {
+                return null;
+            }
+        }
+
+        Spoken spoken = new Spoken();
+        List<String> squares = new ArrayList<>();
+        boolean promoting = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            char pieceLetter = pieceLetter(token);
+
+            if (token.equals("promote")) {
+                promoting = true;
+            } else if (token.equals("takes")) {
+                spoken.capture = true;
+            } else if (pieceLetter != 0) {
+                if (promoting || !squares.isEmpty()) {
+                    spoken.promotion = Character.toLowerCase(pieceLetter); // "e8 queen"
+                } else if (spoken.piece == 0 && !spoken.capture) {
+                    spoken.piece = pieceLetter;
+                } else if (spoken.capture) {
+                    spoken.capturedPiece = pieceLetter; // "pawn takes queen"
+                }
+            } else if (isFile(token) && i + 1 < tokens.size() && isRank(tokens.get(i + 1))) {
+                squares.add(token + tokens.get(i + 1));
+                i++;
+            } else if (isFile(token) && squares.isEmpty() && !spoken.capture
+                    && (spoken.piece != 0 || !token.equals("a"))) {
+                spoken.fromFile = token.charAt(0); // "knight b to d2", "e takes d5"
+            } else if (!token.equals("a")) {
+                return null; // a stray rank or file; "a" is usually just the article
+            }
+        }
+
+        if (squares.size() > 2) return null;
+        if (squares.size() == 2) {
+            spoken.fromSquare = squares.get(0);
+            spoken.toSquare = squares.get(1);
+        } else if (squares.size() == 1) {
+            spoken.toSquare = squares.get(0);
+        }
+        if (spoken.toSquare == null && spoken.capturedPiece == 0) return null;
+        return spoken;
+    }
+
+    /**
+     * Legal moves consistent with everything that was said
+     */
+    private static List<String> matchMoves(Spoken spoken, PositionSnapshot position, List<String> legalMoves) {
+        List<String> matches = new ArrayList<>();
+        for (String move : legalMoves) {
+            if (move.length() < 4) continue;
+            String from = move.substring(0, 2);
+            String to = move.substring(2, 4);
+            char moving = Character.toUpperCase(pieceAt(position, from));
+            char target = pieceAt(position, to);
+            char promotion = move.length() > 4 ? move.charAt(4) : 0;
+
+            if (spoken.toSquare != null && !spoken.toSquare.equals(to)) continue;
+            if (spoken.fromSquare != null && !spoken.fromSquare.equals(from)) continue;
+            if (spoken.fromFile != 0 && from.charAt(0) != spoken.fromFile) continue;
+            if (spoken.piece != 0 && moving != spoken.piece) continue;
+            if (spoken.capturedPiece != 0 && Character.toUpperCase(target) != spoken.capturedPiece) continue;
+            // Only a spoken capture can be a capture on an empty square: en passant
+            if (spoken.capture && target == PositionSnapshot.EMPTY
+                    && !(moving == 'P' && from.charAt(0) != to.charAt(0))) continue;
+            if (promotion != 0 && promotion != (spoken.promotion != 0 ? spoken.promotion : 'q')) continue;
+            matches.add(move);
+        }
+
+        // A bare square ("e4") means a pawn move in SAN, if there is one
+        if (matches.size() > 1 && spoken.piece == 0 && spoken.fromSquare == null) {
+            List<String> pawnMoves = new ArrayList<>();
+            for (String move : matches) {
+                if (Character.toUpperCase(pieceAt(position, move.substring(0, 2))) == 'P') pawnMoves.add(move);
+            }
+            if (!pawnMoves.isEmpty()) return pawnMoves;
+        }
+        return matches;
+    }
+
+    private static List<String> castlingMoves(PositionSnapshot position, List<String> legalMoves, boolean queenside) {
+        List<String> matches = new ArrayList<>();
+        for (String move : legalMoves) {
+            if (move.length() < 4 || Character.toUpperCase(pieceAt(position, move.substring(0, 2))) != 'K') continue;
+            int step = move.charAt(2) - move.charAt(0);
+            if (queenside ? step == -2 : step == 2) matches.add(move);
+        }
+        return matches;
+    }
+
+    private static Command resolve(List<String> matches) {
+        if (matches.isEmpty()) return Command.of(Type.NONE);
+        if (matches.size() == 1) return new Command(Type.MOVE, matches.get(0), matches);
+        return new Command(Type.AMBIGUOUS, null, matches);
+    }
+
+    private static char pieceAt(PositionSnapshot position, String square) {
+        return position.pieceAt(8 - (square.charAt(1) - '0'), square.charAt(0) - 'a');
+    }
+
+    private static char pieceLetter(String token) {
+        switch (token) {
+            case "knight": return 'N';
+            case "bishop": return 'B';
+            case "rook": return 'R';
+            case "queen": return 'Q';
+            case "king": return 'K';
+            case "pawn": return 'P';
+            default: return 0;
+        }
+    }
+
+    private static String pieceName(char letter) {
+        return PIECE_NAMES["nbrqk".indexOf(letter)];
+    }
+
+    private static boolean isFile(String token) {
+        return token.length() == 1 && token.charAt(0) >= 'a' && token.charAt(0) <= 'h';
+    }
+
+    private static boolean isRank(String token) {
+        return token.length() == 1 && token.charAt(0) >= '1' && token.charAt(0) <= '8';
+    }
+}
@@ -6,48 +6,88 @@
 #define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, "ChessPedagogue", __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "ChessPedagogue", __VA_ARGS__)
 
+// The StockfishManager that receives engine output, and its callback
+static JavaVM* java_vm = nullptr;
+static jobject engine_manager = nullptr;
+static jmethodID handle_engine_line = nullptr;
+
+// Engine threads are attached to the JVM the first time they print and detached when they exit
+struct ThreadEnv {
+    JNIEnv* env = nullptr;
+    bool attached = false;
+
+    ~ThreadEnv() {
+        if (attached) java_vm->DetachCurrentThread();
+    }
+};
+
+static JNIEnv* current_env() {
+    thread_local ThreadEnv thread_env;
+    if (thread_env.env != nullptr) return thread_env.env;
+
+    jint status = java_vm->GetEnv(reinterpret_cast<void**>(&thread_env.env), JNI_VERSION_1_6);
+    if (status == JNI_EDETACHED) {
+        if (java_vm->AttachCurrentThread(&thread_env.env, nullptr) != JNI_OK) {
+            LOGE("Could not attach engine thread to the JVM");
+            thread_env.env = nullptr;
+            return nullptr;
+        }
+        thread_env.attached = true;
+    }
+    return thread_env.env;
+}
+
+// Pass one line of engine output to StockfishManager.handleEngineLine
+static void deliver_line(const std::string& line) {
+    JNIEnv* env = current_env();
+    if (env == nullptr || engine_manager == nullptr) return;
+
+    jstring jline = env->NewStringUTF(line.c_str());
+    env->CallVoidMethod(engine_manager, handle_engine_line, jline);
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+    env->DeleteLocalRef(jline);
+}
+
 extern "C" {
 JNIEXPORT jboolean JNICALL
-Java_com_example_chesspedagogue_StockfishManager_nativeInit(JNIEnv* env, jobject /* this */) {
+Java_com_example_chesspedagogue_StockfishManager_nativeInit(JNIEnv* env, jobject thiz) {
     LOGD("Initializing Stockfish");
-    return stockfish_init() ? JNI_TRUE : JNI_FALSE;
+    env->GetJavaVM(&java_vm);
+
+    jclass cls = env->GetObjectClass(thiz);
+    handle_engine_line = env->GetMethodID(cls, "handleEngineLine", "(Ljava/lang/String;)V");
+    env->DeleteLocalRef(cls);
+    if (handle_engine_line == nullptr) {
+        LOGE("StockfishManager.handleEngineLine not found");
+        return JNI_FALSE;
+    }
+
+    if (engine_manager != nullptr) env->DeleteGlobalRef(engine_manager);
+    engine_manager = env->NewGlobalRef(thiz);
+    return stockfish_init(deliver_line) ? JNI_TRUE : JNI_FALSE;
 }
 
-JNIEXPORT jstring JNICALL
+JNIEXPORT void JNICALL
 Java_com_example_chesspedagogue_StockfishManager_nativeSendCommand(JNIEnv* env, jobject /* this */, jstring cmd) {
     const char* cmd_chars = env->GetStringUTFChars(cmd, nullptr);
     std::string cmd_str(cmd_chars);
     env->ReleaseStringUTFChars(cmd, cmd_chars);
 
-    LOGD("Sending command: %s", cmd_str.c_str());
-    std::string response = stockfish_command(cmd_str);
-    return env->NewStringUTF(response.c_str());
+    stockfish_command(cmd_str);
 }
 
 JNIEXPORT void JNICALL
 Java_com_example_chesspedagogue_StockfishManager_nativeQuit(JNIEnv* env, jobject /* this */) {
     LOGD("Shutting down Stockfish");
     stockfish_quit();
-}
 
-JNIEXPORT jstring JNICALL
-Java_com_example_chesspedagogue_MainActivity_getStockfishVersion(JNIEnv* env, jobject /* this */) {
-    // Initialize the engine if needed
-    stockfish_init();
-
-    // Send the UCI command to get engine info
-    std::string response = stockfish_command("uci");
-
-    // Extract version information
-    std::string version = "Stockfish";
-    size_t id_pos = response.find("id name ");
-    if (id_pos != std::string::npos) {
-        size_t end_pos = response.find("\n", id_pos);
-        if (end_pos != std::string::npos) {
-            version = response.substr(id_pos + 8, end_pos - id_pos - 8);
-        }
+    // The engine thread has exited, so nothing can call back any more
+    if (engine_manager != nullptr) {
+        env->DeleteGlobalRef(engine_manager);
+        engine_manager = nullptr;
     }
-
-    return env->NewStringUTF(version.c_str());
 }
-}
\ No newline at end of file
+}
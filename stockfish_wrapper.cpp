@@ -1,233 +1,191 @@
-#include <string>
-#include <thread>
-#include <mutex>
-#include <queue>
 #include <condition_variable>
+#include <deque>
 #include <iostream>
-#include <sstream>
+#include <mutex>
+#include <streambuf>
+#include <string>
+#include <thread>
 #include <android/log.h>
 #include "stockfish_wrapper.h"
 
-// External functions from stockfish_adapter.cpp
-extern "C" {
-namespace Stockfish {
-    void init();
-    void engine_exit();
-    bool isready();
-    void ucinewgame();
-    void position(const char* fen);
-    void setoption(const char* name, const char* value);
-    void go(int depth, int movetime);
-    const char* bestmove();
-    void stop();
-}
-}
+// Stockfish's main(), exported by an engine library built with -Dmain=stockfish_main.
+// Weak, so the wrapper still links against a library without it; it is null then,
+// and the in-process engine reports itself unavailable.
+int stockfish_main(int argc, char* argv[]) __attribute__((weak));
 
 // Define logging macros
 #define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, "StockfishWrapper", __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, "StockfishWrapper", __VA_ARGS__)
 
-// Internal state
-static std::thread engine_thread;
-static bool engine_running = false;
-static std::mutex engine_mutex;
-static std::condition_variable engine_cv;
-static std::queue<std::string> command_queue;
-static std::string latest_response;
+namespace {
 
-// Thread function to process Stockfish commands
-static void process_commands() {
-    LOGD("Stockfish command processing thread started");
+// Engine input: the UCI loop reads queued commands from std::cin, blocking while
+// the queue is empty. End of input makes the loop quit.
+class CommandBuffer : public std::streambuf {
+public:
+    void push(const std::string& cmd) {
+        {
+            std::lock_guard<std::mutex> lock(mutex_);
+            queue_.push_back(cmd + "\n");
+        }
+        cv_.notify_one();
+    }
 
-    // Initialize the Stockfish engine
-    Stockfish::init();
+    void close() {
+        {
+            std::lock_guard<std::mutex> lock(mutex_);
+            closed_ = true;
+        }
+        cv_.notify_all();
+    }
 
-    while (engine_running) {
-        std::string cmd;
+    // Drop what is left of the last session; only once the engine thread has exited
+    void reset() {
+        std::lock_guard<std::mutex> lock(mutex_);
+        queue_.clear();
+        current_.clear();
+        closed_ = false;
+        setg(nullptr, nullptr, nullptr);
+    }
 
-        // Wait for a command
-        {
-            std::unique_lock<std::mutex> lock(engine_mutex);
-            engine_cv.wait(lock, [] {
-                return !command_queue.empty() || !engine_running;
-            });
+protected:
+    int_type underflow() override {
+        if (gptr() < egptr()) return traits_type::to_int_type(*gptr());
 
-            if (!engine_running) break;
+        std::unique_lock<std::mutex> lock(mutex_);
+        cv_.wait(lock, [this] { return !queue_.empty() || closed_; });
+        if (queue_.empty()) return traits_type::eof();
 
-            cmd = command_queue.front();
-            command_queue.pop();
-        }
+        current_ = std::move(queue_.front());
+        queue_.pop_front();
+        setg(&current_[0], &current_[0], &current_[0] + current_.size());
+        return traits_type::to_int_type(*gptr());
+    }
 
-        LOGD("Processing command: %s", cmd.c_str());
+private:
+    std::mutex mutex_;
+    std::condition_variable cv_;
+    std::deque<std::string> queue_;
+    std::string current_;
+    bool closed_ = false;
+};
+
+// Engine output: what the engine writes to std::cout is handed over a line at a time
+class LineBuffer : public std::streambuf {
+public:
+    void set_handler(EngineLineHandler handler) {
+        std::lock_guard<std::mutex> lock(mutex_);
+        handler_ = std::move(handler);
+        line_.clear();
+    }
 
-        // Process the command
-        std::stringstream response;
+protected:
+    int_type overflow(int_type ch) override {
+        if (traits_type::eq_int_type(ch, traits_type::eof())) return traits_type::not_eof(ch);
+        std::lock_guard<std::mutex> lock(mutex_);
+        append(traits_type::to_char_type(ch));
+        return ch;
+    }
 
-        if (cmd == "isready") {
-            bool ready = Stockfish::isready();
-            response << (ready ? "readyok" : "not ready");
-        }
-        else if (cmd == "ucinewgame") {
-            Stockfish::ucinewgame();
-            response << "ok";
-        }
-        else if (cmd.substr(0, 8) == "position ") {
-            std::string fen = cmd.substr(9);
-            Stockfish::position(fen.c_str());
-            response << "ok";
-        }
-        else if (cmd.substr(0, 10) == "setoption ") {
-            // Parse "setoption name NAME value VALUE"
-            std::string remaining = cmd.substr(10);
-            size_t name_pos = remaining.find("name ");
-            size_t value_pos = remaining.find(" value ");
-
-            if (name_pos != std::string::npos && value_pos != std::string::npos) {
-                std::string name = remaining.substr(name_pos + 5, value_pos - name_pos - 5);
-                std::string value = remaining.substr(value_pos + 7);
-                Stockfish::setoption(name.c_str(), value.c_str());
-                response << "ok";
-            } else {
-                response << "error: invalid setoption format";
-            }
-        }
-        else if (cmd.substr(0, 3) == "go ") {
-            // Parse "go [depth D] [movetime M]"
-            int depth = 0;
-            int movetime = 1000; // Default 1 second
-
-            size_t depth_pos = cmd.find("depth ");
-            if (depth_pos != std::string::npos) {
-                depth = std::stoi(cmd.substr(depth_pos + 6));
-            }
-
-            size_t time_pos = cmd.find("movetime ");
-            if (time_pos != std::string::npos) {
-                movetime = std::stoi(cmd.substr(time_pos + 9));
-            }
-
-            Stockfish::go(depth, movetime);
-            response << "bestmove " << Stockfish::bestmove();
-        }
-        else if (cmd == "stop") {
-            Stockfish::stop();
-            response << "ok";
-        }
-        else if (cmd == "uci") {
-            response << "id name Stockfish" << std::endl;
-            response << "id author Stockfish Team" << std::endl;
-            // Add UCI options here if needed
-            response << "uciok";
-        }
-        else {
-            response << "unknown command: " << cmd;
+    std::streamsize xsputn(const char* s, std::streamsize n) override {
+        std::lock_guard<std::mutex> lock(mutex_);
+        for (std::streamsize i = 0; i < n; i++) {
+            append(s[i]);
         }
+        return n;
+    }
 
-        // Store the response
-        {
-            std::lock_guard<std::mutex> lock(engine_mutex);
-            latest_response = response.str();
-            LOGD("Command response: %s", latest_response.c_str());
+private:
+    void append(char c) {
+        if (c == '\n') {
+            if (handler_) handler_(line_);
+            line_.clear();
+        } else if (c != '\r') {
+            line_ += c;
         }
     }
 
-    // Cleanup Stockfish
-    Stockfish::engine_exit();
-    LOGD("Stockfish command processing thread exiting");
-}
+    std::mutex mutex_;
+    EngineLineHandler handler_;
+    std::string line_;
+};
 
-// Implementation of stockfish_init
-bool stockfish_init() {
-    LOGD("Initializing Stockfish wrapper");
+// Internal state
+CommandBuffer engine_input;
+LineBuffer engine_output;
+std::streambuf* saved_cin = nullptr;
+std::streambuf* saved_cout = nullptr;
+std::thread engine_thread;
+std::mutex lifecycle_mutex;
+bool engine_running = false;
+
+} // namespace
 
+// Implementation of stockfish_init
+bool stockfish_init(EngineLineHandler handler) {
+    std::lock_guard<std::mutex> lock(lifecycle_mutex);
     if (engine_running) {
         LOGD("Stockfish already running");
+        engine_output.set_handler(std::move(handler));
         return true;
     }
+    if (stockfish_main == nullptr) {
+        LOGE("The engine library does not export stockfish_main");
+        return false;
+    }
 
+    LOGD("Starting in-process Stockfish");
+    engine_output.set_handler(std::move(handler));
+    saved_cin = std::cin.rdbuf(&engine_input);
+    // The previous session ended std::cin with end of input
+    std::cin.clear();
+    saved_cout = std::cout.rdbuf(&engine_output);
     engine_running = true;
 
     try {
-        // Start the command processing thread
-        engine_thread = std::thread(process_commands);
-
-        // Make sure the engine is ready
-        std::string response = stockfish_command("isready");
-        return response == "readyok";
+        engine_thread = std::thread([] {
+            char name[] = "stockfish";
+            char* argv[] = {name, nullptr};
+            stockfish_main(1, argv);
+            LOGD("Stockfish UCI loop exited");
+        });
+        return true;
     }
     catch (const std::exception& e) {
         LOGE("Exception in stockfish_init: %s", e.what());
+        std::cin.rdbuf(saved_cin);
+        std::cout.rdbuf(saved_cout);
         engine_running = false;
         return false;
     }
 }
 
 // Implementation of stockfish_command
-std::string stockfish_command(const std::string& cmd) {
+void stockfish_command(const std::string& cmd) {
     if (!engine_running) {
         LOGE("Stockfish engine not running");
-        return "Engine not running";
-    }
-
-    try {
-        LOGD("Sending command: %s", cmd.c_str());
-
-        // Clear previous response
-        {
-            std::lock_guard<std::mutex> lock(engine_mutex);
-            latest_response = "";
-        }
-
-        // Add the command to the queue
-        {
-            std::lock_guard<std::mutex> lock(engine_mutex);
-            command_queue.push(cmd);
-        }
-
-        // Notify the processing thread
-        engine_cv.notify_one();
-
-        // Wait a reasonable time for a response (can be adjusted)
-        std::this_thread::sleep_for(std::chrono::milliseconds(100));
-
-        // Get the response
-        std::string response;
-        {
-            std::lock_guard<std::mutex> lock(engine_mutex);
-            response = latest_response;
-        }
-
-        return response;
-    }
-    catch (const std::exception& e) {
-        LOGE("Exception in stockfish_command: %s", e.what());
-        return std::string("Error: ") + e.what();
+        return;
     }
+    engine_input.push(cmd);
 }
 
 // Implementation of stockfish_quit
 void stockfish_quit() {
-    LOGD("Shutting down Stockfish wrapper");
-
-    if (engine_running) {
-        // Signal the thread to exit
-        {
-            std::lock_guard<std::mutex> lock(engine_mutex);
-            engine_running = false;
-        }
-
-        // Wake up the thread if it's waiting
-        engine_cv.notify_one();
-
-        // Wait for the thread to finish
-        if (engine_thread.joinable()) {
-            engine_thread.join();
-        }
-
-        // Clear the command queue
-        std::queue<std::string> empty;
-        std::swap(command_queue, empty);
-
-        LOGD("Stockfish wrapper shutdown complete");
+    std::lock_guard<std::mutex> lock(lifecycle_mutex);
+    if (!engine_running) return;
+
+    LOGD("Shutting down Stockfish");
+    engine_input.push("quit");
+    engine_input.close();
+    if (engine_thread.joinable()) {
+        engine_thread.join();
     }
-}
\ No newline at end of file
+
+    std::cin.rdbuf(saved_cin);
+    std::cout.rdbuf(saved_cout);
+    engine_output.set_handler(nullptr);
+    // Ready for stockfish_init to start the engine again
+    engine_input.reset();
+    engine_running = false;
+    LOGD("Stockfish shutdown complete");
+}
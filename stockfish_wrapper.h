@@ -1,38 +1,41 @@
 #ifndef STOCKFISH_WRAPPER_H
 #define STOCKFISH_WRAPPER_H
 
+#include <functional>
 #include <string>
 
 /**
- * Initializes the Stockfish engine.
- * This starts a background thread that communicates with the engine.
- *
- * @return true if the engine was initialized successfully, false otherwise
+ * Receives each line the engine prints, without the newline.
+ * Called on engine threads as soon as the line is complete.
  */
-bool stockfish_init();
+using EngineLineHandler = std::function<void(const std::string&)>;
 
 /**
- * Sends a UCI command to Stockfish and gets the response.
+ * Starts Stockfish inside this process.
+ * The engine's own UCI loop runs on a background thread, reading commands from a
+ * queue instead of stdin and passing its output to the handler instead of stdout.
+ * Stockfish keeps global state, so only one engine runs per process; after
+ * stockfish_quit it can be started again.
  *
- * Supported commands include:
- * - "isready" - Checks if the engine is ready
- * - "ucinewgame" - Prepares for a new game
- * - "position fen [FEN]" - Sets the position from FEN
- * - "position startpos moves [move1] [move2]..." - Sets position after moves
- * - "setoption name [NAME] value [VALUE]" - Sets an engine option
- * - "go depth [D] movetime [M]" - Calculates best move
- * - "stop" - Stops the current calculation
- * - "uci" - Gets engine identity
+ * @param handler Receives the engine's output lines
+ * @return true if the engine was started (or is already running), false if the
+ * engine library doesn't export stockfish_main
+ */
+bool stockfish_init(EngineLineHandler handler);
+
+/**
+ * Queues a UCI command for the engine and returns at once.
+ * Any command the engine understands can be sent ("position startpos moves e2e4",
+ * "go movetime 500", "go perft 1", "d", "stop", ...); responses arrive through
+ * the line handler.
  *
  * @param cmd The UCI command to send
- * @return The engine's response
  */
-std::string stockfish_command(const std::string& cmd);
+void stockfish_command(const std::string& cmd);
 
 /**
- * Cleans up the Stockfish engine.
- * This stops the background thread and releases resources.
+ * Stops the engine and waits for its thread to finish.
  */
 void stockfish_quit();
 
-#endif // STOCKFISH_WRAPPER_H
\ No newline at end of file
+#endif // STOCKFISH_WRAPPER_H